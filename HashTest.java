@@ -1 +0,0 @@
-import java.io.*; import java.nio.file.*; import java.security.MessageDigest; public class HashTest { public static void main(String[] args) { try { MessageDigest digest = MessageDigest.getInstance("SHA-256"); Path file = Paths.get("mods/appleskin-forge-mc1.20.1-2.5.1.jar"); try (FileInputStream fis = new FileInputStream(file.toFile()); BufferedInputStream bis = new BufferedInputStream(fis)) { byte[] buffer = new byte[8192]; int bytesRead; while ((bytesRead = bis.read(buffer)) \!= -1) { digest.update(buffer, 0, bytesRead); } } byte[] hashBytes = digest.digest(); StringBuilder hexString = new StringBuilder(); for (byte b : hashBytes) { String hex = Integer.toHexString(0xff & b); if (hex.length() == 1) { hexString.append("0"); } hexString.append(hex); } System.out.println("File hash (SHA-256): " + hexString.toString()); } catch (Exception e) { e.printStackTrace(); } } }
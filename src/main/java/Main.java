@@ -1,83 +1,107 @@
 import com.minecraft.sync.*;
 import java.awt.GraphicsEnvironment;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
 
 public class Main {
-    // Platform-dependent fallback path for modlist.json
-    private static String getLocalModlistPath() {
-        String os = System.getProperty("os.name").toLowerCase();
-        if (os.contains("win")) {
-            // Windows fallback - current directory 
-            String currentDir = System.getProperty("user.dir");
-            return currentDir + "\\modlist.json";
-        } else {
-            // macOS/Linux fallback
-            return "/Users/galentwww/IdeaProjects/minecraftResSync/modlist.json";
-        }
-    }
-
+    // How long a finished CLI run waits for an update check that is still in flight
+    private static final long CLI_UPDATE_WAIT_MILLIS = 5000;
+    
     public static void main(String[] args) {
-        // Check for updates before launching any mode
-        UpdateChecker.checkAndUpdate();
+        // Check for updates in the background while the selected mode starts up;
+        // read-only modes (plan, verify, benchmark) must not replace the jar
+        java.util.List<String> argList = java.util.Arrays.asList(args);
+        CompletableFuture<UpdateChecker.UpdateInfo> updateCheck =
+            argList.contains("--plan") || argList.contains("--verify") || argList.contains("--bench-digests")
+                ? CompletableFuture.completedFuture(null)
+                : UpdateChecker.checkAsync();
         
         // Check if should launch GUI (no arguments or --gui flag)
         if (args.length == 0 || (args.length == 1 && "--gui".equals(args[0]))) {
             // Launch GUI without auto-fetch
-            javax.swing.SwingUtilities.invokeLater(() -> {
-                new MinecraftResSyncGUI().setVisible(true);
-            });
+            launchGui(null, updateCheck);
             return;
         }
         
         // Check if it's a GUI launch with API URL parameter
         if (args.length == 1 && !args[0].startsWith("-")) {
-            // Could be either GUI with URL or CLI mode
-            String apiUrl = args[0];
-            
             // Launch GUI with auto-fetch
-            javax.swing.SwingUtilities.invokeLater(() -> {
-                new MinecraftResSyncGUI(apiUrl).setVisible(true);
-            });
+            launchGui(args[0], updateCheck);
             return;
         }
         
-        // Check for explicit CLI mode
-        if (args.length == 2 && "--cli".equals(args[0])) {
-            runCliMode(args[1]);
+        // Measure digest throughput: --bench-digests [directory]
+        if (args.length >= 1 && "--bench-digests".equals(args[0])) {
+            DigestBenchmark.run(args.length >= 2 ? args[1] : null);
             return;
         }
         
-        // Default: treat single argument as CLI mode for backward compatibility
-        if (args.length == 1) {
-            runCliMode(args[0]);
+        // Check for explicit CLI mode: --cli <url> [options]
+        if (args.length >= 2 && "--cli".equals(args[0])) {
+            int exitCode = runCliMode(java.util.Arrays.copyOfRange(args, 1, args.length));
+            // The check has been running alongside the sync; install a newer jar once the work is done
+            if (exitCode != CliSync.EXIT_USAGE) {
+                UpdateChecker.applyWhenReady(updateCheck, CLI_UPDATE_WAIT_MILLIS);
+            }
+            System.exit(exitCode);
             return;
         }
         
         // Invalid arguments
         System.err.println("Usage: java -jar minecraftResSync.jar [options] [api-endpoint-url]");
         System.err.println("Options:");
-        System.err.println("  (no args)          Launch GUI");
-        System.err.println("  --gui              Launch GUI");
-        System.err.println("  --cli <url>        Run in CLI mode");
-        System.err.println("  <url>              Launch GUI with auto-fetch");
-        System.exit(1);
+        System.err.println("  (no args)              Launch GUI");
+        System.err.println("  --gui                  Launch GUI");
+        System.err.println("  --cli <url> [...]      Run a headless sync (see --cli --help)");
+        System.err.println("  --bench-digests [dir]  Measure hashing throughput per algorithm");
+        System.err.println("  <url>                  Launch GUI with auto-fetch");
+        System.exit(CliSync.EXIT_USAGE);
     }
     
-    private static void runCliMode(String apiUrl) {
-        // Continue with CLI mode
-        System.out.println("=== Minecraft Resource Sync Tool ===");
-        System.out.println("Starting resource synchronization...\n");
-
-        // Parse command line arguments
-        ArgumentParser parser = new ArgumentParser(new String[]{apiUrl});
+    /**
+     * Show the window right away; the update notice appears whenever the background check finishes
+     */
+    private static void launchGui(String apiUrl, CompletableFuture<UpdateChecker.UpdateInfo> updateCheck) {
+        javax.swing.SwingUtilities.invokeLater(() -> {
+            MinecraftResSyncGUI gui = new MinecraftResSyncGUI(apiUrl);
+            gui.setVisible(true);
+            updateCheck.thenAccept(info -> javax.swing.SwingUtilities.invokeLater(() -> gui.showUpdateNotice(info)));
+        });
+    }
+    
+    /**
+     * Run a headless sync, or only print the manifest with --list
+     * @return process exit code
+     */
+    private static int runCliMode(String[] cliArgs) {
+        ArgumentParser parser = new ArgumentParser(cliArgs);
         if (!parser.isValid()) {
             System.err.println("Error: " + parser.getErrorMessage());
-            System.exit(1);
+            return CliSync.EXIT_USAGE;
         }
 
-        String apiEndpoint = parser.getApiEndpoint();
+        if (parser.isPlanOnly()) {
+            // Keep stdout clean for --json
+            return new CliSync(parser).plan();
+        }
+
+        System.out.println("=== Minecraft Resource Sync Tool ===");
+        if (parser.isListOnly()) {
+            listManifest(parser.getApiEndpoint());
+            return CliSync.EXIT_OK;
+        }
+        if (parser.isVerifyOnly()) {
+            return new CliSync(parser).verify();
+        }
+
+        System.out.println("Starting resource synchronization...\n");
+        int exitCode = new CliSync(parser).run();
+        System.out.println(exitCode == CliSync.EXIT_OK
+            ? "\n=== Resource sync completed ==="
+            : "\n=== Resource sync finished with errors (exit code " + exitCode + ") ===");
+        return exitCode;
+    }
+    
+    private static void listManifest(String apiEndpoint) {
         System.out.println("API Endpoint: " + apiEndpoint);
 
         try {
@@ -85,35 +109,28 @@ public class Main {
             System.out.println("\n--- Fetching from remote API ---");
             System.out.println("Connecting to: " + apiEndpoint);
             
-            String jsonResponse = HttpClient.get(apiEndpoint);
-            ModListResponse remoteResponse = JsonParser.parseModListFromString(jsonResponse);
-            
-            if (remoteResponse != null && remoteResponse.getData() != null) {
-                System.out.println("Successfully fetched mod list from remote API");
-                displayModList(remoteResponse);
-            } else {
-                System.err.println("Failed to parse remote API response");
-                
-                // Fallback to local file
-                System.out.println("\n--- Fallback to local modlist.json ---");
-                ModListResponse localResponse = JsonParser.parseModListFromFile(getLocalModlistPath());
-                
-                if (localResponse != null && localResponse.getData() != null) {
-                    System.out.println("Using local modlist.json as fallback");
-                    displayModList(localResponse);
-                } else {
-                    System.err.println("Failed to read both remote API and local modlist.json");
-                    System.exit(1);
-                }
+            ManifestCache.Result result = ManifestCache.load(apiEndpoint, null);
+            switch (result.getSource()) {
+                case FETCHED:
+                    System.out.println("Successfully fetched mod list from remote API");
+                    break;
+                case NOT_MODIFIED:
+                    System.out.println("Mod list unchanged, using cached snapshot");
+                    break;
+                case CACHED:
+                    System.out.println("\n--- Remote API unavailable, using cached snapshot ---");
+                    break;
+                case LOCAL_FILE:
+                    System.out.println("\n--- Fallback to local modlist.json ---");
+                    break;
             }
+            displayModList(result.getResponse());
 
         } catch (Exception e) {
             System.err.println("Error: " + e.getMessage());
             e.printStackTrace();
-            System.exit(1);
+            System.exit(CliSync.EXIT_MANIFEST_UNAVAILABLE);
         }
-
-        System.out.println("\n=== Resource sync completed ===");
     }
 
     private static void displayModList(ModListResponse response) {
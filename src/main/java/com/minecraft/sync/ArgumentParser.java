@@ -1,9 +1,51 @@
 package com.minecraft.sync;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 public class ArgumentParser {
+    public static final String USAGE =
+        "Usage: java -jar minecraftResSync.jar --cli <api-endpoint-url> [options]\n"
+        + "Options:\n"
+        + "  --optional <all|none|name,...>  Optional mods to install (default: none)\n"
+        + "  --concurrency <n>               Maximum parallel downloads (default: " + DownloadScheduler.DEFAULT_MAX_CONCURRENT + ")\n"
+        + "  --per-host <n>                  Maximum parallel downloads per host (default: " + DownloadScheduler.DEFAULT_MAX_PER_HOST + ")\n"
+        + "  --max-concurrency <n>           Upper bound when adapting parallel downloads (default: " + DownloadScheduler.DEFAULT_MAX_ADAPTIVE + ")\n"
+        + "  --fixed-concurrency             Keep --concurrency fixed instead of adapting it to throughput and errors\n"
+        + "  --limit-rate <rate>             Cap total download bandwidth, e.g. 500K or 2M per second (default: unlimited)\n"
+        + "  --list                          Only print the manifest, do not download\n"
+        + "  --plan                          Show what a sync would do without changing anything\n"
+        + "  --json                          With --plan, print the plan as JSON\n"
+        + "  --plan-rate <MB/s>              With --plan, bandwidth assumed for the time estimate (default: 10)\n"
+        + "  --verify                        Re-hash every installed file and report mismatches\n"
+        + "Exit codes: 0 ok, 1 usage error, 2 manifest unavailable, 3 some downloads failed,\n"
+        + "            4 --verify found files that are missing or do not match the manifest";
+
+    /**
+     * Which optional mods the CLI should install
+     */
+    public enum OptionalMode {
+        NONE,
+        ALL,
+        SELECTED
+    }
+
     private String apiEndpoint;
     private boolean isValid;
     private String errorMessage;
+    private OptionalMode optionalMode = OptionalMode.NONE;
+    private List<String> optionalNames = Collections.emptyList();
+    private int maxConcurrent = DownloadScheduler.DEFAULT_MAX_CONCURRENT;
+    private int maxPerHost = DownloadScheduler.DEFAULT_MAX_PER_HOST;
+    private boolean adaptive = DownloadScheduler.DEFAULT_ADAPTIVE;
+    private int maxAdaptive = DownloadScheduler.DEFAULT_MAX_ADAPTIVE;
+    private long limitRateBytes = -1;
+    private boolean listOnly = false;
+    private boolean planOnly = false;
+    private boolean verifyOnly = false;
+    private boolean json = false;
+    private double planRateMegabytes = 10;
 
     public ArgumentParser(String[] args) {
         parseArguments(args);
@@ -12,30 +54,161 @@ public class ArgumentParser {
     private void parseArguments(String[] args) {
         if (args == null || args.length == 0) {
             this.isValid = false;
-            this.errorMessage = "Usage: java -jar minecraftResSync.jar <api-endpoint-url>";
+            this.errorMessage = USAGE;
             return;
         }
 
-        if (args.length > 1) {
-            this.isValid = false;
-            this.errorMessage = "Too many arguments. Usage: java -jar minecraftResSync.jar <api-endpoint-url>";
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                if (apiEndpoint != null) {
+                    fail("Too many arguments: " + arg + "\n" + USAGE);
+                    return;
+                }
+                apiEndpoint = arg;
+                continue;
+            }
+
+            if ("--help".equals(arg)) {
+                fail(USAGE);
+                return;
+            }
+
+            if ("--list".equals(arg)) {
+                listOnly = true;
+                continue;
+            }
+
+            if ("--plan".equals(arg)) {
+                planOnly = true;
+                continue;
+            }
+
+            if ("--verify".equals(arg)) {
+                verifyOnly = true;
+                continue;
+            }
+
+            if ("--json".equals(arg)) {
+                json = true;
+                continue;
+            }
+
+            if ("--fixed-concurrency".equals(arg)) {
+                adaptive = false;
+                continue;
+            }
+
+            if (i + 1 >= args.length) {
+                fail("Missing value for " + arg + "\n" + USAGE);
+                return;
+            }
+            String value = args[++i];
+
+            switch (arg) {
+                case "--optional":
+                    if (!parseOptional(value)) {
+                        return;
+                    }
+                    break;
+                case "--concurrency":
+                    maxConcurrent = parsePositiveInt(arg, value);
+                    if (maxConcurrent <= 0) {
+                        return;
+                    }
+                    break;
+                case "--per-host":
+                    maxPerHost = parsePositiveInt(arg, value);
+                    if (maxPerHost <= 0) {
+                        return;
+                    }
+                    break;
+                case "--max-concurrency":
+                    maxAdaptive = parsePositiveInt(arg, value);
+                    if (maxAdaptive <= 0) {
+                        return;
+                    }
+                    break;
+                case "--limit-rate":
+                    limitRateBytes = BandwidthLimiter.parseRate(value);
+                    if (limitRateBytes < 0) {
+                        fail("--limit-rate expects a rate such as 500K or 2M, or 0 for unlimited, got: " + value);
+                        return;
+                    }
+                    break;
+                case "--plan-rate":
+                    try {
+                        planRateMegabytes = Double.parseDouble(value);
+                    } catch (NumberFormatException e) {
+                        planRateMegabytes = -1;
+                    }
+                    if (!(planRateMegabytes > 0)) {
+                        fail("--plan-rate expects a positive number of MB/s, got: " + value);
+                        return;
+                    }
+                    break;
+                default:
+                    fail("Unknown option: " + arg + "\n" + USAGE);
+                    return;
+            }
+        }
+
+        if (apiEndpoint == null) {
+            fail("Missing API endpoint URL\n" + USAGE);
             return;
         }
 
-        this.apiEndpoint = args[0];
-        
         // Basic URL validation
         if (!isValidUrl(apiEndpoint)) {
-            this.isValid = false;
-            this.errorMessage = "Invalid URL format: " + apiEndpoint;
+            fail("Invalid URL format: " + apiEndpoint);
             return;
         }
 
         this.isValid = true;
     }
 
+    private boolean parseOptional(String value) {
+        if ("all".equalsIgnoreCase(value)) {
+            optionalMode = OptionalMode.ALL;
+        } else if ("none".equalsIgnoreCase(value)) {
+            optionalMode = OptionalMode.NONE;
+        } else {
+            List<String> names = new ArrayList<>();
+            for (String name : value.split(",")) {
+                if (!name.trim().isEmpty()) {
+                    names.add(name.trim());
+                }
+            }
+            if (names.isEmpty()) {
+                fail("--optional expects all, none or a comma-separated list of names");
+                return false;
+            }
+            optionalMode = OptionalMode.SELECTED;
+            optionalNames = Collections.unmodifiableList(names);
+        }
+        return true;
+    }
+
+    private int parsePositiveInt(String option, String value) {
+        try {
+            int n = Integer.parseInt(value);
+            if (n > 0) {
+                return n;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        fail(option + " expects a positive integer, got: " + value);
+        return -1;
+    }
+
+    private void fail(String message) {
+        this.isValid = false;
+        this.errorMessage = message;
+    }
+
     private boolean isValidUrl(String url) {
-        return url != null && 
+        return url != null &&
                (url.startsWith("http://") || url.startsWith("https://")) &&
                url.length() > 10; // Basic length check
     }
@@ -51,4 +224,67 @@ public class ArgumentParser {
     public String getErrorMessage() {
         return errorMessage;
     }
-}
\ No newline at end of file
+
+    public OptionalMode getOptionalMode() {
+        return optionalMode;
+    }
+
+    /**
+     * Friendly or raw names given with --optional when the mode is SELECTED
+     */
+    public List<String> getOptionalNames() {
+        return optionalNames;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getMaxPerHost() {
+        return maxPerHost;
+    }
+
+    /**
+     * Whether the parallel download limit adapts to throughput and errors
+     */
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * Highest parallel download limit adaptive concurrency may reach
+     */
+    public int getMaxAdaptive() {
+        return maxAdaptive;
+    }
+
+    /**
+     * Bandwidth cap in bytes per second given with --limit-rate, 0 for unlimited, -1 if not given
+     */
+    public long getLimitRateBytes() {
+        return limitRateBytes;
+    }
+
+    public boolean isListOnly() {
+        return listOnly;
+    }
+
+    public boolean isPlanOnly() {
+        return planOnly;
+    }
+
+    public boolean isVerifyOnly() {
+        return verifyOnly;
+    }
+
+    public boolean isJson() {
+        return json;
+    }
+
+    /**
+     * Bandwidth assumed for plan time estimates, in bytes per second
+     */
+    public double getPlanRateBytesPerSecond() {
+        return planRateMegabytes * 1024 * 1024;
+    }
+}
@@ -0,0 +1,134 @@
+package com.minecraft.sync;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Process-wide download bandwidth cap.
+ * A token bucket refilled at the configured rate; download read loops take one token per
+ * byte after each read and sleep while the bucket is in debt, so all transfers together stay
+ * under the cap and TCP flow control slows the senders down. The bucket holds at most a
+ * quarter second of tokens, which keeps bursts short after idle periods. A rate of 0 means
+ * unlimited. The initial rate comes from -Dmcsync.download.maxRate in bytes per second and
+ * can be changed while transfers are running.
+ */
+public class BandwidthLimiter {
+
+    private static final long BURST_DIVISOR = 4;
+    // Reads of one buffer always fit, so a low cap cannot stall a transfer forever
+    private static final long MIN_BURST_BYTES = 64 * 1024;
+
+    private static final BandwidthLimiter instance = new BandwidthLimiter(Long.getLong("mcsync.download.maxRate", 0));
+
+    // Guarded by this
+    private long bytesPerSecond;
+    private double tokens;
+    private long lastRefillNanos = System.nanoTime();
+    private long throttledNanos = 0;
+
+    public static BandwidthLimiter getInstance() {
+        return instance;
+    }
+
+    private BandwidthLimiter(long bytesPerSecond) {
+        setRate(bytesPerSecond);
+    }
+
+    /**
+     * Change the cap; takes effect for the next read of every running transfer
+     * @param bytesPerSecond the new cap, 0 or less for unlimited
+     */
+    public synchronized void setRate(long bytesPerSecond) {
+        this.bytesPerSecond = Math.max(0, bytesPerSecond);
+        this.tokens = 0;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Current cap in bytes per second, 0 if unlimited
+     */
+    public synchronized long getRate() {
+        return bytesPerSecond;
+    }
+
+    public synchronized boolean isLimited() {
+        return bytesPerSecond > 0;
+    }
+
+    /**
+     * Account for bytes just read, sleeping as long as the cap requires
+     * @throws InterruptedIOException if the thread is interrupted while waiting
+     */
+    public void acquire(int bytes) throws InterruptedIOException {
+        long waitNanos = reserve(bytes);
+        if (waitNanos <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while throttled");
+        }
+    }
+
+    /**
+     * Take the tokens, going into debt if needed
+     * @return how long the caller has to wait until the debt is paid off, in nanoseconds
+     */
+    private synchronized long reserve(int bytes) {
+        if (bytesPerSecond <= 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        double burst = Math.max(MIN_BURST_BYTES, bytesPerSecond / BURST_DIVISOR);
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) * bytesPerSecond / 1e9);
+        lastRefillNanos = now;
+        tokens -= bytes;
+        if (tokens >= 0) {
+            return 0;
+        }
+        long waitNanos = (long) (-tokens * 1e9 / bytesPerSecond);
+        throttledNanos += waitNanos;
+        return waitNanos;
+    }
+
+    /**
+     * Total time transfers have spent waiting for the cap, in milliseconds
+     */
+    public synchronized long getThrottledMillis() {
+        return throttledNanos / 1_000_000;
+    }
+
+    /**
+     * Parse a rate such as 500K, 2M or 1.5m (bytes per second, binary units); a bare number is KB/s
+     * @return bytes per second, or -1 if the value is not a rate
+     */
+    public static long parseRate(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return -1;
+        }
+        String s = value.trim().toUpperCase();
+        if (s.endsWith("/S")) {
+            s = s.substring(0, s.length() - 2);
+        }
+        if (s.endsWith("B")) {
+            s = s.substring(0, s.length() - 1);
+        }
+        long unit = 1024;
+        if (s.endsWith("K")) {
+            s = s.substring(0, s.length() - 1);
+        } else if (s.endsWith("M")) {
+            unit = 1024 * 1024;
+            s = s.substring(0, s.length() - 1);
+        } else if (s.endsWith("G")) {
+            unit = 1024L * 1024 * 1024;
+            s = s.substring(0, s.length() - 1);
+        }
+        try {
+            double amount = Double.parseDouble(s.trim());
+            return amount >= 0 && !Double.isInfinite(amount) ? (long) (amount * unit) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.minecraft.sync;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Resolves the file status of many manifest entries at once, hashing every file involved
+ * across all cores. Target files are hashed largest first so one big shader pack does not
+ * finish last on a single core; catalog directories are only hashed as a whole for entries
+ * whose target is missing, which is when rename detection needs them.
+ */
+public class BulkVerifier {
+
+    public static final int DEFAULT_PARALLELISM = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    private static final ForkJoinPool pool = new ForkJoinPool(
+        Integer.getInteger("mcsync.verify.threads", DEFAULT_PARALLELISM), new WorkerThreadFactory(), null, false);
+
+    /**
+     * Receives each status as soon as it is resolved; called from pool threads
+     */
+    public interface Listener {
+        void onStatus(int index, ModInfo item, FileDownloader.FileStatus status);
+    }
+
+    /**
+     * Totals of one verification run
+     */
+    public static class Result {
+        private final List<FileDownloader.FileStatus> statuses;
+        private final int filesHashed;
+        private final long bytesHashed;
+        private final long elapsedMillis;
+
+        Result(List<FileDownloader.FileStatus> statuses, int filesHashed, long bytesHashed, long elapsedMillis) {
+            this.statuses = statuses;
+            this.filesHashed = filesHashed;
+            this.bytesHashed = bytesHashed;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        /** Status per item, in the order the items were given */
+        public List<FileDownloader.FileStatus> getStatuses() { return statuses; }
+        /** Files whose digest was looked up or computed */
+        public int getFilesHashed() { return filesHashed; }
+        /** Total size of those files */
+        public long getBytesHashed() { return bytesHashed; }
+        public long getElapsedMillis() { return elapsedMillis; }
+    }
+
+    /**
+     * Resolve the status of one entry on the verification pool
+     */
+    public static FileDownloader.FileStatus verify(ModInfo item) {
+        return verify(Collections.singletonList(item), false, null).getStatuses().get(0);
+    }
+
+    /**
+     * Resolve the status of every entry, using the hash index for files whose metadata is unchanged
+     */
+    public static Result verify(List<ModInfo> items, Listener listener) {
+        return verify(items, false, listener);
+    }
+
+    /**
+     * Resolve the status of every entry
+     * @param rehash ignore cached digests and read every file again
+     * @param listener receives statuses as they are resolved, may be null
+     */
+    public static Result verify(List<ModInfo> items, boolean rehash, Listener listener) {
+        long startTime = System.currentTimeMillis();
+        Map<String, CompletableFuture<String>> digests = new ConcurrentHashMap<>();
+        AtomicLong bytesHashed = new AtomicLong();
+        Map<Path, List<Path>> directoryFiles = new LinkedHashMap<>();
+
+        // Work out which files each entry depends on
+        List<List<String>> dependencies = new ArrayList<>();
+        Map<String, FileTask> targets = new LinkedHashMap<>();
+        Map<String, FileTask> others = new LinkedHashMap<>();
+        for (ModInfo item : items) {
+            List<String> needed = new ArrayList<>();
+            DigestAlgorithm algorithm = item.getDigestAlgorithm();
+            String hash = item.getHash();
+            if (algorithm != null && hash != null && !hash.trim().isEmpty()) {
+                Path target = FileDownloader.getTargetFile(item);
+                if (Files.isRegularFile(target)) {
+                    FileTask task = new FileTask(target, algorithm);
+                    targets.putIfAbsent(task.key(), task);
+                    needed.add(task.key());
+                } else {
+                    // Rename detection looks for the content anywhere in the catalog directory
+                    for (Path file : directoryFiles.computeIfAbsent(target.getParent(), BulkVerifier::listFiles)) {
+                        FileTask task = new FileTask(file, algorithm);
+                        others.putIfAbsent(task.key(), task);
+                        needed.add(task.key());
+                    }
+                }
+            }
+            dependencies.add(needed);
+        }
+
+        // Largest targets first, then whatever directory scans still need
+        for (Map<String, FileTask> tasks : Arrays.asList(targets, others)) {
+            List<FileTask> ordered = new ArrayList<>(tasks.values());
+            ordered.sort(Comparator.comparingLong(FileTask::size).reversed());
+            for (FileTask task : ordered) {
+                schedule(task, rehash, digests, bytesHashed);
+            }
+        }
+
+        List<CompletableFuture<FileDownloader.FileStatus>> statuses = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            int index = i;
+            ModInfo item = items.get(i);
+            CompletableFuture<?>[] needed = dependencies.get(i).stream()
+                .map(digests::get)
+                .toArray(CompletableFuture[]::new);
+            // The digests are indexed by now, so the regular status check only does cache lookups
+            statuses.add(CompletableFuture.allOf(needed).thenApplyAsync(v -> {
+                FileDownloader.FileStatus status = FileDownloader.inspectFileStatus(item);
+                if (listener != null) {
+                    listener.onStatus(index, item, status);
+                }
+                return status;
+            }, pool));
+        }
+
+        List<FileDownloader.FileStatus> result = statuses.stream()
+            .map(CompletableFuture::join)
+            .collect(Collectors.toList());
+        return new Result(result, digests.size(), bytesHashed.get(), System.currentTimeMillis() - startTime);
+    }
+
+    public static int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Start hashing a file unless the same file and algorithm is already scheduled
+     */
+    private static void schedule(FileTask task, boolean rehash, Map<String, CompletableFuture<String>> digests,
+                                 AtomicLong bytesHashed) {
+        digests.computeIfAbsent(task.key(), key -> CompletableFuture.supplyAsync(() -> {
+            bytesHashed.addAndGet(task.size());
+            HashIndex index = HashIndex.getInstance();
+            if (!rehash) {
+                return index.getDigest(task.file, task.algorithm);
+            }
+            Map<DigestAlgorithm, String> computed = DigestAlgorithm.hashFile(task.file,
+                EnumSet.of(task.algorithm, DigestAlgorithm.XXH64));
+            if (computed == null) {
+                index.remove(task.file);
+                return null;
+            }
+            index.record(task.file, computed);
+            return computed.get(task.algorithm);
+        }, pool));
+    }
+
+    private static List<Path> listFiles(Path directory) {
+        if (!Files.isDirectory(directory)) {
+            return Collections.emptyList();
+        }
+        try (Stream<Path> stream = Files.list(directory)) {
+            return stream.filter(Files::isRegularFile)
+                .filter(file -> !PartialDownload.isSidecarFile(file))
+                .collect(Collectors.toList());
+        } catch (Exception e) {
+            SyncLog.error("Error scanning directory " + directory + ": " + e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * One file to hash with one algorithm
+     */
+    private static class FileTask {
+        final Path file;
+        final DigestAlgorithm algorithm;
+        private long size = -1;
+
+        FileTask(Path file, DigestAlgorithm algorithm) {
+            this.file = file.toAbsolutePath().normalize();
+            this.algorithm = algorithm;
+        }
+
+        String key() {
+            return algorithm.getTag() + ":" + file;
+        }
+
+        long size() {
+            if (size < 0) {
+                try {
+                    size = Files.size(file);
+                } catch (Exception e) {
+                    size = 0;
+                }
+            }
+            return size;
+        }
+    }
+
+    private static class WorkerThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+        private final AtomicInteger threadCounter = new AtomicInteger(1);
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            t.setName("verify-worker-" + threadCounter.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.minecraft.sync;
+
+/**
+ * Per-host circuit breaker.
+ * After threshold consecutive failures the host is considered down and no requests are sent
+ * to it until the cooldown ends, instead of each one waiting out its own timeouts. Callers
+ * with another source to go to are turned away at once; the others wait. After the cooldown
+ * a single trial request is let through while the rest keep waiting: success closes the
+ * breaker and releases them, failure opens it again.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,     // Requests pass
+        OPEN,       // Requests are rejected until the cooldown ends
+        HALF_OPEN   // One trial request is in flight
+    }
+
+    private final String host;
+    private final int threshold;
+    private final long cooldownMillis;
+
+    // Guarded by this
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAt = 0;
+    private int trips = 0;
+    private int rejected = 0;
+
+    CircuitBreaker(String host, int threshold, long cooldownMillis) {
+        this.host = host;
+        this.threshold = Math.max(1, threshold);
+        this.cooldownMillis = cooldownMillis;
+    }
+
+    /**
+     * Ask to send a request without waiting
+     * @return false if the host is considered down and the request should not be sent
+     */
+    public synchronized boolean allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.currentTimeMillis() - openedAt >= cooldownMillis) {
+                    state = State.HALF_OPEN;
+                    return true;
+                }
+                rejected++;
+                return false;
+            case HALF_OPEN:
+            default:
+                rejected++;
+                return false;
+        }
+    }
+
+    /**
+     * Wait until a request may be sent: while open until the cooldown ends, while half open
+     * until the trial request's outcome is known
+     * @param maxWaitMillis how long the caller is willing to wait
+     * @return false if the host is still considered down after that long
+     */
+    public synchronized boolean awaitRequest(long maxWaitMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + maxWaitMillis;
+        while (true) {
+            long now = System.currentTimeMillis();
+            if (state == State.CLOSED) {
+                return true;
+            }
+            if (state == State.OPEN && now - openedAt >= cooldownMillis) {
+                state = State.HALF_OPEN;
+                return true;
+            }
+            // An open breaker that stays open past the deadline is not worth waiting for
+            long wakeAt = state == State.OPEN ? openedAt + cooldownMillis : deadline;
+            if (now >= deadline || wakeAt > deadline) {
+                rejected++;
+                return false;
+            }
+            wait(Math.max(1, wakeAt - now));
+        }
+    }
+
+    /**
+     * The host answered, even if with an error the caller cannot use
+     */
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+        notifyAll();
+    }
+
+    /**
+     * The host did not answer or answered with a server error
+     */
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= threshold)) {
+            if (state == State.CLOSED) {
+                SyncLog.error("Host " + describeHost() + " failed " + consecutiveFailures
+                    + " times in a row, pausing requests for " + cooldownMillis / 1000 + "s");
+            }
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            trips++;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Release a trial request that ended without telling anything about the host
+     */
+    public synchronized void recordIgnored() {
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Whether requests are being rejected right now
+     */
+    public synchronized boolean isOpen() {
+        return state == State.HALF_OPEN
+            || (state == State.OPEN && System.currentTimeMillis() - openedAt < cooldownMillis);
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Number of times the breaker opened
+     */
+    public synchronized int getTrips() {
+        return trips;
+    }
+
+    /**
+     * Requests turned away while the breaker was open
+     */
+    public synchronized int getRejected() {
+        return rejected;
+    }
+
+    private String describeHost() {
+        return host.isEmpty() ? "(unknown)" : host;
+    }
+}
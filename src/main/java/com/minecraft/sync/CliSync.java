@@ -0,0 +1,390 @@
+package com.minecraft.sync;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Headless sync pipeline for --cli.
+ * Runs the same stages as the GUI workflow through the parallel download scheduler
+ * and reports the outcome as a process exit code.
+ */
+public class CliSync {
+
+    public static final int EXIT_OK = 0;
+    public static final int EXIT_USAGE = 1;
+    public static final int EXIT_MANIFEST_UNAVAILABLE = 2;
+    public static final int EXIT_DOWNLOADS_FAILED = 3;
+    public static final int EXIT_VERIFY_MISMATCH = 4;
+
+    // Byte progress is printed at this interval while transfers are running
+    private static final long PROGRESS_INTERVAL_MILLIS = 2000;
+
+    private final ArgumentParser options;
+    // Progress and notices; stderr when stdout carries JSON
+    private final PrintStream info;
+    // Filled in by stage threads; kept in stage order for the summary
+    private final Map<SyncStage, DownloadScheduler.Result> results = Collections.synchronizedMap(new EnumMap<>(SyncStage.class));
+    private volatile boolean interrupted;
+
+    // Prerequisite libs are queued while the manifest is still being parsed
+    private DownloadScheduler earlyScheduler;
+    private final Set<String> earlySubmittedKeys = ConcurrentHashMap.newKeySet();
+
+    private final ScheduledExecutorService progressTicker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "cli-progress");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public CliSync(ArgumentParser options) {
+        this.options = options;
+        this.info = options.isJson() ? System.err : System.out;
+    }
+
+    /**
+     * Load the manifest and print what a sync would do, without downloading or writing files
+     * @return EXIT_OK, or EXIT_MANIFEST_UNAVAILABLE
+     */
+    public int plan() {
+        info.println("API Endpoint: " + options.getApiEndpoint());
+        ModListResponse manifest;
+        try {
+            // A dry run leaves the manifest snapshot as it is
+            ManifestCache.Result result = ManifestCache.load(options.getApiEndpoint(), null, true);
+            manifest = result.getResponse();
+            info.println("Manifest: " + manifest.getData().size() + " entries (" + describeSource(result.getSource()) + ")");
+        } catch (Exception e) {
+            System.err.println("Error: could not load manifest: " + e.getMessage());
+            return EXIT_MANIFEST_UNAVAILABLE;
+        }
+
+        Map<SyncStage, List<ModInfo>> selected = new LinkedHashMap<>();
+        for (SyncStage stage : SyncStage.values()) {
+            selected.put(stage, selectItems(stage, manifest.getData()));
+        }
+
+        SyncPlanner.Plan plan = SyncPlanner.build(options.getApiEndpoint(), selected, manifest.getData());
+        SyncLog.flush();
+        if (options.isJson()) {
+            System.out.println(SyncPlanner.toJson(plan, options.getPlanRateBytesPerSecond()));
+        } else {
+            SyncPlanner.printText(plan, options.getPlanRateBytesPerSecond());
+        }
+        return EXIT_OK;
+    }
+
+    /**
+     * Load the manifest and re-hash every selected file across all cores, ignoring cached digests
+     * @return EXIT_OK if every file matches, EXIT_VERIFY_MISMATCH, or EXIT_MANIFEST_UNAVAILABLE
+     */
+    public int verify() {
+        System.out.println("API Endpoint: " + options.getApiEndpoint());
+        ModListResponse manifest;
+        try {
+            ManifestCache.Result result = ManifestCache.load(options.getApiEndpoint(), null);
+            manifest = result.getResponse();
+            System.out.println("Manifest: " + manifest.getData().size() + " entries (" + describeSource(result.getSource()) + ")");
+        } catch (Exception e) {
+            System.err.println("Error: could not load manifest: " + e.getMessage());
+            return EXIT_MANIFEST_UNAVAILABLE;
+        }
+
+        List<ModInfo> items = new ArrayList<>();
+        List<SyncStage> stages = new ArrayList<>();
+        for (SyncStage stage : SyncStage.values()) {
+            for (ModInfo item : selectItems(stage, manifest.getData())) {
+                items.add(item);
+                stages.add(stage);
+            }
+        }
+
+        System.out.printf("Verifying %d file(s) on %d thread(s)...%n", items.size(), BulkVerifier.getParallelism());
+        BulkVerifier.Result result = BulkVerifier.verify(items, true, null);
+        SyncLog.flush();
+        HashIndex.getInstance().save();
+
+        Map<SyncStage, int[]> counts = new LinkedHashMap<>();
+        int problems = 0;
+        for (int i = 0; i < items.size(); i++) {
+            FileDownloader.FileStatus status = result.getStatuses().get(i);
+            int[] stageCounts = counts.computeIfAbsent(stages.get(i), k -> new int[FileDownloader.FileStatusType.values().length]);
+            stageCounts[status.type.ordinal()]++;
+            if (status.type != FileDownloader.FileStatusType.FILE_UP_TO_DATE) {
+                problems++;
+                System.out.printf("  %-12s %-14s %s%n", describeStatus(status.type), stages.get(i).getCliName(),
+                    items.get(i).getFriendlyName());
+            }
+        }
+
+        System.out.println("\n=== Verify summary ===");
+        for (Map.Entry<SyncStage, int[]> entry : counts.entrySet()) {
+            int[] c = entry.getValue();
+            System.out.printf("%-14s %3d ok, %3d mismatch, %3d misnamed, %3d missing%n", entry.getKey().getCliName(),
+                c[FileDownloader.FileStatusType.FILE_UP_TO_DATE.ordinal()],
+                c[FileDownloader.FileStatusType.FILE_NEEDS_UPDATE.ordinal()],
+                c[FileDownloader.FileStatusType.FILE_NEEDS_RENAME.ordinal()],
+                c[FileDownloader.FileStatusType.FILE_NOT_FOUND.ordinal()]);
+        }
+        double seconds = Math.max(result.getElapsedMillis(), 1) / 1000.0;
+        System.out.printf("Hashed %d file(s), %s in %.1fs (%s/s)%n", result.getFilesHashed(),
+            FileDownloader.formatBytes(result.getBytesHashed()), seconds,
+            FileDownloader.formatBytes((long) (result.getBytesHashed() / seconds)));
+        System.out.println(problems == 0 ? "All files match the manifest" : problems + " file(s) need attention; run a sync to fix them");
+        return problems == 0 ? EXIT_OK : EXIT_VERIFY_MISMATCH;
+    }
+
+    /**
+     * Fetch the manifest and run every stage
+     * @return one of the EXIT_* codes
+     */
+    public int run() {
+        System.out.println("API Endpoint: " + options.getApiEndpoint());
+        System.out.printf("Parallel downloads: %d (per host: %d)%s%n", options.getMaxConcurrent(), options.getMaxPerHost(),
+            options.isAdaptive() ? ", adapting up to " + Math.max(options.getMaxConcurrent(), options.getMaxAdaptive()) : "");
+        if (options.getLimitRateBytes() >= 0) {
+            BandwidthLimiter.getInstance().setRate(options.getLimitRateBytes());
+        }
+        if (BandwidthLimiter.getInstance().isLimited()) {
+            System.out.println("Bandwidth limit: " + FileDownloader.formatBytes(BandwidthLimiter.getInstance().getRate()) + "/s");
+        }
+
+        DirectoryInventory.invalidateAll();
+        long startBytes = HttpTransport.getInstance().getBytesReceived();
+        long startTime = System.currentTimeMillis();
+
+        // Stages run side by side and share one pool, so the concurrency limits hold for the whole run
+        DownloadPool pool = new DownloadPool(options.getMaxConcurrent(), options.getMaxPerHost());
+        if (options.isAdaptive()) {
+            pool.enableAdaptive(options.getMaxAdaptive());
+        }
+        earlyScheduler = newScheduler(pool, SyncStage.PREREQUISITE_MODS);
+        ModListResponse manifest;
+        try {
+            ManifestCache.Result result = ManifestCache.load(options.getApiEndpoint(), mod -> {
+                if (SyncStage.PREREQUISITE_MODS.matches(mod) && earlySubmittedKeys.add(downloadKey(mod))) {
+                    earlyScheduler.submit(mod);
+                }
+            });
+            manifest = result.getResponse();
+            System.out.println("Manifest: " + manifest.getData().size() + " entries (" + describeSource(result.getSource()) + ")");
+        } catch (Exception e) {
+            System.err.println("Error: could not load manifest: " + e.getMessage());
+            earlyScheduler.cancel();
+            pool.shutdown();
+            return EXIT_MANIFEST_UNAVAILABLE;
+        }
+
+        ExecutorService stageThreads = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "cli-stage");
+            t.setDaemon(true);
+            return t;
+        });
+        StageExecutor stages = new StageExecutor(EnumSet.allOf(SyncStage.class),
+            stage -> CompletableFuture.runAsync(() -> runStage(stage, pool, manifest.getData()), stageThreads), null);
+        try {
+            stages.start().join();
+        } finally {
+            stageThreads.shutdown();
+            pool.shutdown();
+            progressTicker.shutdownNow();
+        }
+        if (interrupted) {
+            System.err.println("Sync interrupted");
+            return EXIT_DOWNLOADS_FAILED;
+        }
+
+        SyncLog.flush();
+        printSummary(pool, HttpTransport.getInstance().getBytesReceived() - startBytes,
+            System.currentTimeMillis() - startTime);
+
+        int failed = results.values().stream().mapToInt(DownloadScheduler.Result::getFailCount).sum();
+        return failed > 0 ? EXIT_DOWNLOADS_FAILED : EXIT_OK;
+    }
+
+    /**
+     * Print a byte progress line for a stage at a fixed interval while it has transfers running
+     */
+    private ScheduledFuture<?> reportProgress(SyncStage stage, ProgressModel progress) {
+        progress.sample();
+        return progressTicker.scheduleAtFixedRate(() -> {
+            ProgressModel.Snapshot snapshot = progress.sample();
+            if (snapshot.getActiveTransfers() == 0 || snapshot.getBytesDone() == 0) {
+                return;
+            }
+            StringBuilder line = new StringBuilder(String.format("[%s] %s", stage.getCliName(),
+                FileDownloader.formatBytes(snapshot.getBytesDone())));
+            if (snapshot.getBytesTotal() > 0) {
+                line.append(String.format(" / ~%s (%.0f%%)", FileDownloader.formatBytes(snapshot.getBytesTotal()),
+                    snapshot.getFraction() * 100));
+            }
+            line.append(String.format(", %s/s, ETA %s, %d/%d item(s)",
+                FileDownloader.formatBytes((long) snapshot.getSmoothedRate()),
+                ProgressModel.formatDuration(snapshot.getEtaSeconds()),
+                snapshot.getItemsDone(), snapshot.getItemsTotal()));
+            SyncLog.info(line.toString());
+        }, PROGRESS_INTERVAL_MILLIS, PROGRESS_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Download the items of one stage and record its result; runs on a stage thread
+     */
+    private void runStage(SyncStage stage, DownloadPool pool, List<ModInfo> mods) {
+        List<ModInfo> items = selectItems(stage, mods);
+        SyncLog.info(String.format("%n--- %s: %d item(s) ---", stage.getCliName(), items.size()));
+
+        DownloadScheduler scheduler;
+        if (stage == SyncStage.PREREQUISITE_MODS) {
+            scheduler = earlyScheduler;
+        } else if (items.isEmpty()) {
+            return;
+        } else {
+            scheduler = newScheduler(pool, stage);
+        }
+        for (ModInfo item : items) {
+            if (scheduler != earlyScheduler || !earlySubmittedKeys.contains(downloadKey(item))) {
+                scheduler.submit(item);
+            }
+        }
+        ScheduledFuture<?> progressLine = reportProgress(stage, scheduler.getProgress());
+        try {
+            results.put(stage, scheduler.awaitCompletion());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            interrupted = true;
+            scheduler.cancel();
+        } finally {
+            progressLine.cancel(false);
+        }
+    }
+
+    private DownloadScheduler newScheduler(DownloadPool pool, SyncStage stage) {
+        DownloadScheduler scheduler = new DownloadScheduler(pool);
+        scheduler.setListener(new DownloadScheduler.ConsoleListener(stage.getCliName()));
+        return scheduler;
+    }
+
+    /**
+     * Items of a stage; optional mods are narrowed down by --optional
+     */
+    private List<ModInfo> selectItems(SyncStage stage, List<ModInfo> mods) {
+        List<ModInfo> items = stage.select(mods);
+        if (stage != SyncStage.OPTIONAL_MODS) {
+            return items;
+        }
+
+        switch (options.getOptionalMode()) {
+            case ALL:
+                return items;
+            case SELECTED:
+                List<ModInfo> selected = new ArrayList<>();
+                for (String name : options.getOptionalNames()) {
+                    List<ModInfo> matches = items.stream()
+                        .filter(mod -> name.equalsIgnoreCase(mod.getFriendlyName()) || name.equalsIgnoreCase(mod.getRawName()))
+                        .collect(Collectors.toList());
+                    if (matches.isEmpty()) {
+                        System.err.println("Warning: no optional mod named '" + name + "'");
+                    }
+                    matches.stream().filter(mod -> !selected.contains(mod)).forEach(selected::add);
+                }
+                return selected;
+            case NONE:
+            default:
+                if (!items.isEmpty()) {
+                    info.println(items.size() + " optional mod(s) available; use --optional to install them");
+                }
+                return new ArrayList<>();
+        }
+    }
+
+    private void printSummary(DownloadPool pool, long bytes, long elapsedMillis) {
+        System.out.println("\n=== Sync summary ===");
+        int total = 0;
+        int downloaded = 0;
+        int failed = 0;
+        for (Map.Entry<SyncStage, DownloadScheduler.Result> entry : results.entrySet()) {
+            DownloadScheduler.Result result = entry.getValue();
+            System.out.printf("%-14s %3d item(s): %3d up to date, %3d downloaded, %3d failed (%.1fs)%n",
+                entry.getKey().getCliName(), result.getTotal(),
+                result.getSuccessCount() - result.getDownloadedCount(), result.getDownloadedCount(),
+                result.getFailCount(), result.getElapsedMillis() / 1000.0);
+            total += result.getTotal();
+            downloaded += result.getDownloadedCount();
+            failed += result.getFailCount();
+            for (ModInfo item : result.getFailedItems()) {
+                System.out.println("    failed: " + item.getFriendlyName() + " - " + item.getRes());
+            }
+        }
+
+        double seconds = Math.max(elapsedMillis, 1) / 1000.0;
+        System.out.printf("Total: %d item(s), %d downloaded, %d failed%n", total, downloaded, failed);
+        System.out.printf("Transferred %s in %.1fs (%s/s)%n", FileDownloader.formatBytes(bytes), seconds,
+            FileDownloader.formatBytes((long) (bytes / seconds)));
+        ContentStore store = ContentStore.getInstance();
+        if (store != null && store.getHitCount() > 0) {
+            System.out.printf("Shared cache: %d file(s), %s linked or copied from %s%n", store.getHitCount(),
+                FileDownloader.formatBytes(store.getBytesServed()), store.getRoot());
+        }
+        System.out.print("HTTP connection usage:\n" + HttpTransport.getInstance().describeStats());
+        System.out.print("Retries:\n" + RetryPolicy.getInstance().describeStats());
+        System.out.print("Mirror performance:\n" + MirrorStats.getInstance().describeStats());
+        ConcurrencyController controller = pool.getController();
+        if (controller != null) {
+            System.out.print("Parallel downloads:\n" + controller.describeStats());
+        }
+        BandwidthLimiter limiter = BandwidthLimiter.getInstance();
+        if (limiter.isLimited()) {
+            System.out.printf("Bandwidth limit: %s/s, transfers waited %.1fs in total%n",
+                FileDownloader.formatBytes(limiter.getRate()), limiter.getThrottledMillis() / 1000.0);
+        }
+    }
+
+    private static String describeStatus(FileDownloader.FileStatusType type) {
+        switch (type) {
+            case FILE_NEEDS_UPDATE:
+                return "MISMATCH";
+            case FILE_NEEDS_RENAME:
+                return "MISNAMED";
+            case FILE_NOT_FOUND:
+                return "MISSING";
+            case FILE_UP_TO_DATE:
+            default:
+                return "OK";
+        }
+    }
+
+    private static String describeSource(ManifestCache.Source source) {
+        switch (source) {
+            case NOT_MODIFIED:
+                return "unchanged, cached snapshot";
+            case CACHED:
+                return "API unavailable, cached snapshot";
+            case LOCAL_FILE:
+                return "API unavailable, local modlist.json";
+            case FETCHED:
+            default:
+                return "fetched";
+        }
+    }
+
+    /**
+     * Identity of a download target, stable across a remote parse and a fallback
+     */
+    private static String downloadKey(ModInfo mod) {
+        return mod.getCatelog() + "|" + mod.getRes();
+    }
+}
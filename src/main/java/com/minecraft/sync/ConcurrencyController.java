@@ -0,0 +1,208 @@
+package com.minecraft.sync;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AIMD controller for the number of concurrent downloads of a DownloadPool.
+ * Every interval it measures the received throughput and the transient failures (timeouts,
+ * connection errors, throttling, server errors) of the interval. While items are waiting it
+ * adds one slot to whichever limit holds them back: the per-host limit when slots are free but
+ * their hosts are saturated (a manifest served from one CDN), the overall limit otherwise. The
+ * slot is kept only if throughput rose noticeably in the next interval; otherwise it is given
+ * back and probing pauses for a while. When the share of failed attempts is too high both
+ * limits are halved. No slots are added while the bandwidth cap is already reached, since more
+ * connections would only split the same rate.
+ */
+public class ConcurrencyController {
+
+    private static final long INTERVAL_MILLIS = Long.getLong("mcsync.adaptive.intervalMillis", 2000);
+    // Share of attempts in an interval that may fail transiently before the limit is halved
+    private static final double MAX_ERROR_RATE = Double.parseDouble(System.getProperty("mcsync.adaptive.maxErrorRate", "0.1"));
+    // An added slot has to raise throughput by this share to be kept
+    private static final double MIN_GAIN = 0.05;
+    // Intervals without probing after a decrease or an added slot that did not help
+    private static final int HOLD_INTERVALS = 5;
+    // Throughput this close to the bandwidth cap counts as capped
+    private static final double CAP_SHARE = 0.9;
+    private static final int MIN_LIMIT = 1;
+
+    private static final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "adaptive-concurrency");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final DownloadPool pool;
+    private final int initialLimit;
+    private final int initialPerHostLimit;
+    private final int maxLimit;
+    // More transfers per host than the transport has connections for would only queue there
+    private final int maxPerHostLimit;
+
+    // Guarded by this
+    private ScheduledFuture<?> task;
+    private long lastNanos;
+    private long lastBytes;
+    private int lastFailures;
+    private int lastCompleted;
+    // Throughput before the last added slot, or -1 when no slot is on probation
+    private double rateBeforeProbe = -1;
+    // Whether the slot on probation was added to the per-host limit
+    private boolean probingPerHost = false;
+    private int holdIntervals = 0;
+    private int peakLimit;
+    private int peakPerHostLimit;
+    private int increases = 0;
+    private int decreases = 0;
+
+    ConcurrencyController(DownloadPool pool, int maxLimit) {
+        this.pool = pool;
+        this.initialLimit = pool.getConcurrencyLimit();
+        this.initialPerHostLimit = pool.getPerHostLimit();
+        this.maxLimit = Math.max(initialLimit, maxLimit);
+        this.peakLimit = initialLimit;
+        this.maxPerHostLimit = Math.max(initialPerHostLimit, Math.min(this.maxLimit, HttpTransport.getInstance().getMaxPerHost()));
+        this.peakPerHostLimit = initialPerHostLimit;
+    }
+
+    synchronized void start() {
+        if (task != null) {
+            return;
+        }
+        lastNanos = System.nanoTime();
+        lastBytes = HttpTransport.getInstance().getBytesReceived();
+        lastFailures = RetryPolicy.getInstance().getTransientFailureCount();
+        lastCompleted = pool.getCompletedCount();
+        task = ticker.scheduleWithFixedDelay(this::tick, INTERVAL_MILLIS, INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+    }
+
+    /**
+     * Measure the last interval and adjust the pool's limits
+     */
+    synchronized void tick() {
+        long now = System.nanoTime();
+        long bytes = HttpTransport.getInstance().getBytesReceived();
+        int failures = RetryPolicy.getInstance().getTransientFailureCount();
+        int completed = pool.getCompletedCount();
+        double rate = (bytes - lastBytes) * 1e9 / Math.max(1, now - lastNanos);
+        int failed = failures - lastFailures;
+        int finished = completed - lastCompleted;
+        lastNanos = now;
+        lastBytes = bytes;
+        lastFailures = failures;
+        lastCompleted = completed;
+
+        int limit = pool.getConcurrencyLimit();
+        int perHostLimit = pool.getPerHostLimit();
+        if (holdIntervals > 0) {
+            holdIntervals--;
+        }
+
+        if (failed > 0 && (double) failed / (failed + finished) >= MAX_ERROR_RATE) {
+            rateBeforeProbe = -1;
+            holdIntervals = HOLD_INTERVALS;
+            if (limit > MIN_LIMIT || perHostLimit > MIN_LIMIT) {
+                int reduced = Math.max(MIN_LIMIT, limit / 2);
+                int reducedPerHost = Math.max(MIN_LIMIT, perHostLimit / 2);
+                pool.setPerHostLimit(reducedPerHost);
+                pool.setConcurrencyLimit(reduced);
+                decreases++;
+                SyncLog.info(String.format("Parallel downloads %d -> %d (per host %d -> %d) after %d transient failure(s)",
+                    limit, reduced, perHostLimit, reducedPerHost, failed));
+            }
+            return;
+        }
+
+        if (pool.getRunningCount() == 0) {
+            // Nothing to learn between stages
+            rateBeforeProbe = -1;
+            return;
+        }
+
+        if (rateBeforeProbe >= 0) {
+            if (rate < rateBeforeProbe * (1 + MIN_GAIN)) {
+                if (probingPerHost) {
+                    pool.setPerHostLimit(Math.max(MIN_LIMIT, perHostLimit - 1));
+                } else {
+                    pool.setConcurrencyLimit(Math.max(MIN_LIMIT, limit - 1));
+                }
+                holdIntervals = HOLD_INTERVALS;
+            }
+            rateBeforeProbe = -1;
+            return;
+        }
+
+        if (holdIntervals > 0 || !pool.isBacklogged() || isCapped(rate)) {
+            return;
+        }
+        if (pool.isHostBound()) {
+            if (perHostLimit >= maxPerHostLimit) {
+                return;
+            }
+            rateBeforeProbe = rate;
+            probingPerHost = true;
+            pool.setPerHostLimit(perHostLimit + 1);
+            peakPerHostLimit = Math.max(peakPerHostLimit, perHostLimit + 1);
+        } else {
+            if (limit >= maxLimit) {
+                return;
+            }
+            rateBeforeProbe = rate;
+            probingPerHost = false;
+            pool.setConcurrencyLimit(limit + 1);
+            peakLimit = Math.max(peakLimit, limit + 1);
+        }
+        increases++;
+    }
+
+    private static boolean isCapped(double rate) {
+        BandwidthLimiter limiter = BandwidthLimiter.getInstance();
+        return limiter.isLimited() && rate >= CAP_SHARE * limiter.getRate();
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public synchronized int getPeakLimit() {
+        return peakLimit;
+    }
+
+    public synchronized int getPeakPerHostLimit() {
+        return peakPerHostLimit;
+    }
+
+    /**
+     * Slots added because items were waiting and throughput was still growing
+     */
+    public synchronized int getIncreaseCount() {
+        return increases;
+    }
+
+    /**
+     * Times the limits were halved because of transient failures
+     */
+    public synchronized int getDecreaseCount() {
+        return decreases;
+    }
+
+    /**
+     * Current, initial and peak limits and how often they changed
+     */
+    public synchronized String describeStats() {
+        return String.format("  %d now (started at %d, peak %d, max %d), per host %d now (started at %d, peak %d)%n"
+            + "  %d slot(s) added, halved %d time(s)%n",
+            pool.getConcurrencyLimit(), initialLimit, peakLimit, maxLimit,
+            pool.getPerHostLimit(), initialPerHostLimit, peakPerHostLimit, increases, decreases);
+    }
+}
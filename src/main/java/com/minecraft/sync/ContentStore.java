@@ -0,0 +1,333 @@
+package com.minecraft.sync;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressable download cache shared by every instance on the host.
+ * Verified files are stored once as <root>/ab/cd/<hash> and materialized into instance
+ * directories as hardlinks, falling back to copies. Each blob has a "<hash>.access" marker
+ * whose mtime records the last use; the store is trimmed least-recently-used first once it
+ * exceeds its size limit. The blob's own mtime is never touched because hardlinked instance
+ * files share it and the hash index keys on it.
+ */
+public class ContentStore {
+
+    private static final String ACCESS_SUFFIX = ".access";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("mcsync.cache.enabled"));
+    private static final long MAX_BYTES = Long.getLong("mcsync.cache.maxBytes", 4L * 1024 * 1024 * 1024);
+
+    private static volatile ContentStore instance;
+
+    private final Path root;
+    private final long maxBytes;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicLong bytesServed = new AtomicLong();
+    private final AtomicInteger tempCounter = new AtomicInteger();
+
+    // Approximate store size; computed by a full scan on first use
+    private long currentBytes = -1;
+
+    /**
+     * Get the shared store, or null if it is disabled with -Dmcsync.cache.enabled=false
+     */
+    public static ContentStore getInstance() {
+        if (!ENABLED) {
+            return null;
+        }
+        if (instance == null) {
+            synchronized (ContentStore.class) {
+                if (instance == null) {
+                    instance = new ContentStore(defaultRoot(), MAX_BYTES);
+                }
+            }
+        }
+        return instance;
+    }
+
+    private static Path defaultRoot() {
+        String configured = System.getProperty("mcsync.cache.dir");
+        if (configured != null && !configured.trim().isEmpty()) {
+            return Paths.get(configured.trim());
+        }
+        String xdg = System.getenv("XDG_CACHE_HOME");
+        Path cacheHome = (xdg != null && !xdg.isEmpty()) ? Paths.get(xdg) : Paths.get(System.getProperty("user.home"), ".cache");
+        return cacheHome.resolve("minecraftResSync");
+    }
+
+    ContentStore(Path root, long maxBytes) {
+        this.root = root.toAbsolutePath().normalize();
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Files in catalogs that users or the game edit in place (configs) are copied, never linked,
+     * so an edit in one instance cannot change the stored blob or other instances
+     */
+    public static boolean isLinkable(String catalog) {
+        return catalog == null || !"config".equalsIgnoreCase(catalog);
+    }
+
+    /**
+     * Check whether content with this hash is stored
+     */
+    public boolean contains(String hash) {
+        return isValidHash(hash) && Files.isRegularFile(blobPath(hash));
+    }
+
+    /**
+     * Place stored content at the target path, replacing any existing file atomically
+     * @param link hardlink when possible instead of copying
+     * @return true if the target now holds the stored content
+     */
+    public boolean materialize(String hash, Path target, boolean link) {
+        if (!isValidHash(hash)) {
+            return false;
+        }
+        Path blob = blobPath(hash);
+        if (!Files.isRegularFile(blob)) {
+            return false;
+        }
+
+        // Staged under a sidecar name, so a copy left behind by a crash is never taken for content
+        Path temp = target.resolveSibling(target.getFileName() + "." + uniqueSuffix(PartialDownload.PART_SUFFIX));
+        try {
+            if (!link || !tryLink(temp, blob)) {
+                Files.copy(blob, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            moveIntoPlace(temp, target);
+            touch(hash);
+            return true;
+        } catch (IOException e) {
+            SyncLog.error("Failed to materialize " + target.getFileName() + " from shared cache: " + e.getMessage());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Best effort cleanup
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Add a verified file to the store. The caller guarantees the content matches the hash.
+     * @param link hardlink the file into the store when possible instead of copying
+     */
+    public void put(Path file, String hash, boolean link) {
+        if (!isValidHash(hash)) {
+            return;
+        }
+        Path blob = blobPath(hash);
+        try {
+            if (Files.isRegularFile(blob)) {
+                touch(hash);
+                return;
+            }
+            Files.createDirectories(blob.getParent());
+
+            // Stage under a unique name so concurrent instances never see a partial blob
+            Path temp = blob.resolveSibling(hash.toLowerCase() + "." + uniqueSuffix(TEMP_SUFFIX));
+            if (!link || !tryLink(temp, file)) {
+                Files.copy(file, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            try {
+                Files.move(temp, blob, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // Another instance stored the same content first
+                Files.deleteIfExists(temp);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, blob, StandardCopyOption.REPLACE_EXISTING);
+            }
+            touch(hash);
+            added(Files.size(blob));
+        } catch (IOException e) {
+            SyncLog.error("Failed to add " + file.getFileName() + " to shared cache: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Drop a blob whose content no longer matches its hash
+     */
+    public void remove(String hash) {
+        if (!isValidHash(hash)) {
+            return;
+        }
+        Path blob = blobPath(hash);
+        try {
+            Files.deleteIfExists(blob);
+            Files.deleteIfExists(blob.resolveSibling(hash.toLowerCase() + ACCESS_SUFFIX));
+        } catch (IOException e) {
+            SyncLog.error("Failed to remove " + blob.getFileName() + " from shared cache: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Count a materialized file whose content the caller has verified
+     */
+    public void recordHit(long bytes) {
+        hits.incrementAndGet();
+        bytesServed.addAndGet(bytes);
+    }
+
+    public int getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Bytes materialized from the store instead of downloaded
+     */
+    public long getBytesServed() {
+        return bytesServed.get();
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Account for a new blob and trim the store if it grew past its limit
+     */
+    private synchronized void added(long size) {
+        if (currentBytes < 0) {
+            currentBytes = scanSize();
+        } else {
+            currentBytes += size;
+        }
+        if (currentBytes > maxBytes) {
+            evict();
+        }
+    }
+
+    /**
+     * Delete least-recently-used blobs until the store is below 90% of its limit
+     */
+    private void evict() {
+        List<Path> blobs = listBlobs();
+        blobs.sort(Comparator.comparingLong(this::lastAccess));
+
+        long target = maxBytes / 10 * 9;
+        long size = blobs.stream().mapToLong(ContentStore::sizeOf).sum();
+        int removed = 0;
+        for (Path blob : blobs) {
+            if (size <= target) {
+                break;
+            }
+            long blobSize = sizeOf(blob);
+            try {
+                Files.deleteIfExists(blob);
+                Files.deleteIfExists(blob.resolveSibling(blob.getFileName() + ACCESS_SUFFIX));
+                size -= blobSize;
+                removed++;
+            } catch (IOException e) {
+                SyncLog.error("Failed to evict " + blob.getFileName() + " from shared cache: " + e.getMessage());
+            }
+        }
+        currentBytes = size;
+        if (removed > 0) {
+            SyncLog.info("Shared cache: evicted " + removed + " least recently used file(s), now "
+                + FileDownloader.formatBytes(size));
+        }
+    }
+
+    private long scanSize() {
+        return listBlobs().stream().mapToLong(ContentStore::sizeOf).sum();
+    }
+
+    private List<Path> listBlobs() {
+        if (!Files.isDirectory(root)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> stream = Files.walk(root, 3)) {
+            return stream.filter(Files::isRegularFile)
+                .filter(path -> isValidHash(path.getFileName().toString()))
+                .collect(Collectors.toList());
+        } catch (IOException e) {
+            SyncLog.error("Failed to scan shared cache: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    private long lastAccess(Path blob) {
+        try {
+            Path marker = blob.resolveSibling(blob.getFileName() + ACCESS_SUFFIX);
+            return Files.getLastModifiedTime(Files.exists(marker) ? marker : blob).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private void touch(String hash) {
+        Path marker = blobPath(hash).resolveSibling(hash.toLowerCase() + ACCESS_SUFFIX);
+        try {
+            if (!Files.exists(marker)) {
+                Files.createFile(marker);
+            }
+            Files.setLastModifiedTime(marker, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // Access time only affects eviction order
+        }
+    }
+
+    private Path blobPath(String hash) {
+        String h = hash.toLowerCase();
+        return root.resolve(h.substring(0, 2)).resolve(h.substring(2, 4)).resolve(h);
+    }
+
+    private String uniqueSuffix(String extension) {
+        return ProcessHandle.current().pid() + "-" + tempCounter.incrementAndGet() + extension;
+    }
+
+    private static boolean tryLink(Path link, Path existing) {
+        try {
+            Files.deleteIfExists(link);
+            Files.createLink(link, existing);
+            return true;
+        } catch (IOException | UnsupportedOperationException | SecurityException e) {
+            // Different file system or no hardlink support
+            return false;
+        }
+    }
+
+    private static void moveIntoPlace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static boolean isValidHash(String hash) {
+        if (hash == null || hash.length() < 8) {
+            return false;
+        }
+        for (int i = 0; i < hash.length(); i++) {
+            if (Character.digit(hash.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,147 @@
+package com.minecraft.sync;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Content digests used to verify and index files.
+ * A manifest entry names its algorithm in "hash_algo"; MD5 stays the default so
+ * existing manifests keep working. XXH64 is a fast non-cryptographic checksum that is
+ * only used locally to tell whether an indexed file changed.
+ */
+public enum DigestAlgorithm {
+    MD5("md5", "MD5", 32),
+    SHA1("sha1", "SHA-1", 40),
+    SHA256("sha256", "SHA-256", 64),
+    XXH64("xxh64", null, 16);
+
+    // Large reads keep syscall overhead low on fast disks; one buffer per hashing thread.
+    // It is a heap buffer because every digest here only consumes byte arrays: a direct
+    // buffer saves the JDK's copy on read but adds one per digest, and files get two digests
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocate(BUFFER_SIZE));
+
+    private final String tag;
+    private final String jcaName;
+    private final int hexLength;
+
+    DigestAlgorithm(String tag, String jcaName, int hexLength) {
+        this.tag = tag;
+        this.jcaName = jcaName;
+        this.hexLength = hexLength;
+    }
+
+    /**
+     * Name used in manifests and in the hash index
+     */
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * Whether a manifest may use this algorithm to verify downloads
+     */
+    public boolean isVerifying() {
+        return this != XXH64;
+    }
+
+    /**
+     * Create a fresh digest instance; instances are not thread-safe
+     */
+    public MessageDigest newDigest() {
+        if (jcaName == null) {
+            return new XxHash64();
+        }
+        try {
+            return MessageDigest.getInstance(jcaName);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to provide MD5, SHA-1 and SHA-256
+            throw new IllegalStateException(jcaName + " not available", e);
+        }
+    }
+
+    /**
+     * Hash a file by reading it fully (use HashIndex for cached lookups)
+     * @return lowercase hex digest, or null if the file cannot be read
+     */
+    public String hashFile(Path file) {
+        Map<DigestAlgorithm, String> digests = hashFile(file, Collections.singleton(this));
+        return digests != null ? digests.get(this) : null;
+    }
+
+    /**
+     * Compute several digests of a file in a single read pass
+     * @return lowercase hex digest per algorithm, or null if the file cannot be read
+     */
+    public static Map<DigestAlgorithm, String> hashFile(Path file, Collection<DigestAlgorithm> algorithms) {
+        Map<DigestAlgorithm, MessageDigest> digests = new EnumMap<>(DigestAlgorithm.class);
+        for (DigestAlgorithm algorithm : algorithms) {
+            digests.put(algorithm, algorithm.newDigest());
+        }
+
+        // All digests read the same backing array, without a stream buffer in between
+        ByteBuffer buffer = buffers.get();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer.clear();
+            while (channel.read(buffer) != -1) {
+                for (MessageDigest digest : digests.values()) {
+                    digest.update(buffer.array(), 0, buffer.position());
+                }
+                buffer.clear();
+            }
+        } catch (IOException e) {
+            SyncLog.error("Error calculating file hash: " + e.getMessage());
+            return null;
+        }
+
+        Map<DigestAlgorithm, String> result = new EnumMap<>(DigestAlgorithm.class);
+        digests.forEach((algorithm, digest) -> result.put(algorithm, FileDownloader.toHex(digest.digest())));
+        return result;
+    }
+
+    /**
+     * Look up an algorithm by its tag
+     * @return the algorithm, or null if the tag is unknown
+     */
+    public static DigestAlgorithm forTag(String tag) {
+        if (tag == null) {
+            return null;
+        }
+        String normalized = tag.trim().toLowerCase().replace("-", "").replace("_", "");
+        for (DigestAlgorithm algorithm : values()) {
+            if (algorithm.tag.equals(normalized)) {
+                return algorithm;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Algorithm a manifest entry is verified with. An explicit tag wins; without one the
+     * algorithm is inferred from the digest length, defaulting to MD5.
+     * @return the algorithm, or null if the tag names one that cannot verify downloads
+     */
+    public static DigestAlgorithm forManifest(String tag, String hash) {
+        if (tag != null && !tag.trim().isEmpty()) {
+            DigestAlgorithm algorithm = forTag(tag);
+            return algorithm != null && algorithm.isVerifying() ? algorithm : null;
+        }
+        int length = hash != null ? hash.trim().length() : 0;
+        if (length == SHA1.hexLength) {
+            return SHA1;
+        }
+        if (length == SHA256.hexLength) {
+            return SHA256;
+        }
+        return MD5;
+    }
+}
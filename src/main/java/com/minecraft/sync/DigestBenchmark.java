@@ -0,0 +1,185 @@
+package com.minecraft.sync;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Measures hashing throughput of every DigestAlgorithm.
+ * Uses the files of a directory (by default the mods directory), grouped by size, or, if it
+ * has none, synthetic buffers at typical mod, resource pack and shader pack sizes. Data is
+ * held in memory so the numbers reflect the digest cost, not the disk.
+ */
+public class DigestBenchmark {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final long MAX_SAMPLE_BYTES = 256L * 1024 * 1024;
+    private static final long MIN_MEASURE_NANOS = 1_000_000_000L;
+    private static final int[] SYNTHETIC_SIZES = {256 * 1024, 2 * 1024 * 1024, 16 * 1024 * 1024, 64 * 1024 * 1024};
+    // Upper bounds of the size classes files are grouped into
+    private static final long[] BUCKET_LIMITS = {1024L * 1024, 8L * 1024 * 1024, 32L * 1024 * 1024, Long.MAX_VALUE};
+    private static final String[] BUCKET_LABELS = {"< 1 MB", "1-8 MB", "8-32 MB", ">= 32 MB"};
+
+    /**
+     * Files of one size class, hashed in turn
+     */
+    private static class Bucket {
+        final String label;
+        final List<byte[]> files = new ArrayList<>();
+        long bytes;
+
+        Bucket(String label) {
+            this.label = label;
+        }
+
+        void add(byte[] data) {
+            files.add(data);
+            bytes += data.length;
+        }
+    }
+
+    /**
+     * Run the benchmark and print a throughput table
+     * @param directory directory to sample files from, or null for the mods directory
+     */
+    public static void run(String directory) {
+        Path dir = directory != null ? Paths.get(directory) : FileDownloader.resolveCatalogDirectory("mods");
+        List<Bucket> buckets = loadFiles(dir);
+        if (buckets.isEmpty()) {
+            System.out.println("No files in " + dir + ", using synthetic data");
+            buckets = syntheticBuckets();
+        } else {
+            System.out.println("Sampling files from " + dir);
+        }
+
+        DigestAlgorithm[] algorithms = DigestAlgorithm.values();
+        StringBuilder header = new StringBuilder(String.format("%-10s %6s %10s", "Size", "Files", "Bytes"));
+        for (DigestAlgorithm algorithm : algorithms) {
+            header.append(String.format(" %12s", algorithm.getTag()));
+        }
+        System.out.println(header);
+
+        double[] totalNanos = new double[algorithms.length];
+        long totalBytes = 0;
+        int totalFiles = 0;
+        for (Bucket bucket : buckets) {
+            StringBuilder row = new StringBuilder(String.format("%-10s %6d %10s", bucket.label, bucket.files.size(),
+                FileDownloader.formatBytes(bucket.bytes)));
+            for (int i = 0; i < algorithms.length; i++) {
+                double nanosPerByte = measure(algorithms[i], bucket.files);
+                totalNanos[i] += nanosPerByte * bucket.bytes;
+                row.append(String.format(" %12s", formatRate(nanosPerByte)));
+            }
+            totalBytes += bucket.bytes;
+            totalFiles += bucket.files.size();
+            System.out.println(row);
+        }
+
+        StringBuilder overall = new StringBuilder(String.format("%-10s %6d %10s", "All", totalFiles,
+            FileDownloader.formatBytes(totalBytes)));
+        for (int i = 0; i < algorithms.length; i++) {
+            overall.append(String.format(" %12s", formatRate(totalNanos[i] / totalBytes)));
+        }
+        System.out.println(overall);
+    }
+
+    /**
+     * Hash the files in turn for at least a second after a warm-up pass
+     * @return nanoseconds per byte
+     */
+    private static double measure(DigestAlgorithm algorithm, List<byte[]> files) {
+        MessageDigest digest = algorithm.newDigest();
+        for (byte[] data : files) {
+            hash(digest, data);
+        }
+
+        long bytes = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        int next = 0;
+        do {
+            byte[] data = files.get(next);
+            next = (next + 1) % files.size();
+            hash(digest, data);
+            bytes += data.length;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MIN_MEASURE_NANOS);
+        return (double) elapsed / bytes;
+    }
+
+    private static void hash(MessageDigest digest, byte[] data) {
+        for (int offset = 0; offset < data.length; offset += CHUNK_SIZE) {
+            digest.update(data, offset, Math.min(CHUNK_SIZE, data.length - offset));
+        }
+        digest.digest();
+    }
+
+    private static List<Bucket> loadFiles(Path dir) {
+        List<Bucket> buckets = new ArrayList<>();
+        for (String label : BUCKET_LABELS) {
+            buckets.add(new Bucket(label));
+        }
+        if (!Files.isDirectory(dir)) {
+            return new ArrayList<>();
+        }
+
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(dir)) {
+            files = stream.filter(Files::isRegularFile)
+                .filter(file -> !PartialDownload.isSidecarFile(file))
+                .collect(Collectors.toList());
+        } catch (IOException e) {
+            System.err.println("Error listing " + dir + ": " + e.getMessage());
+            return new ArrayList<>();
+        }
+
+        long loaded = 0;
+        for (Path file : files) {
+            try {
+                long size = Files.size(file);
+                if (size == 0 || size > Integer.MAX_VALUE || loaded + size > MAX_SAMPLE_BYTES) {
+                    continue;
+                }
+                buckets.get(bucketOf(size)).add(Files.readAllBytes(file));
+                loaded += size;
+            } catch (IOException e) {
+                System.err.println("Skipping " + file.getFileName() + ": " + e.getMessage());
+            }
+        }
+        buckets.removeIf(bucket -> bucket.files.isEmpty());
+        return buckets;
+    }
+
+    private static List<Bucket> syntheticBuckets() {
+        List<Bucket> buckets = new ArrayList<>();
+        Random random = new Random(42);
+        for (int size : SYNTHETIC_SIZES) {
+            byte[] data = new byte[size];
+            random.nextBytes(data);
+            Bucket bucket = new Bucket(FileDownloader.formatBytes(size));
+            bucket.add(data);
+            buckets.add(bucket);
+        }
+        return buckets;
+    }
+
+    private static int bucketOf(long size) {
+        int i = 0;
+        while (size >= BUCKET_LIMITS[i]) {
+            i++;
+        }
+        return i;
+    }
+
+    private static String formatRate(double nanosPerByte) {
+        double megabytesPerSecond = 1e9 / nanosPerByte / (1024 * 1024);
+        return String.format("%.0f MB/s", megabytesPerSecond);
+    }
+}
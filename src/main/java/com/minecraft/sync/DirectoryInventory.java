@@ -0,0 +1,177 @@
+package com.minecraft.sync;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * One-shot digest inventory of a catalog directory.
+ * Built once per sync run so rename detection resolves against a digest -> path
+ * multimap instead of hashing the whole directory for every manifest entry.
+ */
+public class DirectoryInventory {
+
+    // Inventories for the current sync run, keyed by normalized directory path
+    private static final Map<Path, DirectoryInventory> inventories = new ConcurrentHashMap<>();
+
+    private final Path directory;
+    private final Set<Path> files = new LinkedHashSet<>();
+    // Built per algorithm on first lookup, since a manifest may mix algorithms
+    private final Map<DigestAlgorithm, Map<String, List<Path>>> filesByDigest = new EnumMap<>(DigestAlgorithm.class);
+    private final Map<DigestAlgorithm, Map<Path, String>> digestByFile = new EnumMap<>(DigestAlgorithm.class);
+
+    /**
+     * Get the inventory for a directory, scanning it on first use in this sync run
+     */
+    public static DirectoryInventory of(Path directory) {
+        return inventories.computeIfAbsent(directory.toAbsolutePath().normalize(), DirectoryInventory::scan);
+    }
+
+    /**
+     * Forget all inventories; the next lookup rescans. Call at the start of each sync run.
+     */
+    public static void invalidateAll() {
+        inventories.clear();
+    }
+
+    private DirectoryInventory(Path directory) {
+        this.directory = directory;
+    }
+
+    private static DirectoryInventory scan(Path directory) {
+        DirectoryInventory inventory = new DirectoryInventory(directory);
+        if (!Files.isDirectory(directory)) {
+            return inventory;
+        }
+
+        try (Stream<Path> stream = Files.list(directory)) {
+            stream.filter(Files::isRegularFile)
+                .filter(file -> !PartialDownload.isSidecarFile(file))
+                .forEach(file -> inventory.files.add(file.toAbsolutePath().normalize()));
+        } catch (Exception e) {
+            SyncLog.error("Error scanning directory " + directory + ": " + e.getMessage());
+        }
+        return inventory;
+    }
+
+    /**
+     * Find a file in this directory whose content matches the digest
+     * @return the matching file, or null if none exists
+     */
+    public synchronized Path findByDigest(DigestAlgorithm algorithm, String digest) {
+        if (digest == null) {
+            return null;
+        }
+
+        List<Path> candidates = digestsFor(algorithm).get(digest.toLowerCase());
+        if (candidates == null) {
+            return null;
+        }
+
+        Iterator<Path> it = candidates.iterator();
+        while (it.hasNext()) {
+            Path candidate = it.next();
+            if (Files.isRegularFile(candidate)) {
+                return candidate;
+            }
+            // File disappeared since the scan
+            it.remove();
+            digestByFile.get(algorithm).remove(candidate);
+            files.remove(candidate);
+        }
+        return null;
+    }
+
+    /**
+     * Record that a file now has the given content (after a download or update)
+     */
+    public synchronized void update(Path file, DigestAlgorithm algorithm, String digest) {
+        Path normalized = file.toAbsolutePath().normalize();
+        removeInternal(normalized);
+        files.add(normalized);
+        for (DigestAlgorithm indexed : digestByFile.keySet()) {
+            String known = indexed == algorithm && digest != null
+                ? digest.toLowerCase()
+                : HashIndex.getInstance().getDigest(normalized, indexed);
+            if (known != null) {
+                put(indexed, normalized, known);
+            }
+        }
+    }
+
+    /**
+     * Record that a file was renamed within this directory
+     */
+    public synchronized void move(Path from, Path to) {
+        Path normalizedFrom = from.toAbsolutePath().normalize();
+        Path normalizedTo = to.toAbsolutePath().normalize();
+        Map<DigestAlgorithm, String> digests = new EnumMap<>(DigestAlgorithm.class);
+        digestByFile.forEach((algorithm, byFile) -> {
+            String digest = byFile.get(normalizedFrom);
+            if (digest != null) {
+                digests.put(algorithm, digest);
+            }
+        });
+        removeInternal(normalizedFrom);
+        removeInternal(normalizedTo);
+        files.add(normalizedTo);
+        digests.forEach((algorithm, digest) -> put(algorithm, normalizedTo, digest));
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Digest multimap for one algorithm, hashing every file (through the hash index) the first time
+     */
+    private Map<String, List<Path>> digestsFor(DigestAlgorithm algorithm) {
+        Map<String, List<Path>> byDigest = filesByDigest.get(algorithm);
+        if (byDigest != null) {
+            return byDigest;
+        }
+
+        filesByDigest.put(algorithm, new HashMap<>());
+        digestByFile.put(algorithm, new HashMap<>());
+        HashIndex index = HashIndex.getInstance();
+        for (Path file : files) {
+            String digest = index.getDigest(file, algorithm);
+            if (digest != null) {
+                put(algorithm, file, digest.toLowerCase());
+            }
+        }
+        return filesByDigest.get(algorithm);
+    }
+
+    private void put(DigestAlgorithm algorithm, Path file, String digest) {
+        filesByDigest.get(algorithm).computeIfAbsent(digest, k -> new ArrayList<>()).add(file);
+        digestByFile.get(algorithm).put(file, digest);
+    }
+
+    private void removeInternal(Path file) {
+        files.remove(file);
+        for (Map.Entry<DigestAlgorithm, Map<Path, String>> entry : digestByFile.entrySet()) {
+            String oldDigest = entry.getValue().remove(file);
+            if (oldDigest == null) {
+                continue;
+            }
+            Map<String, List<Path>> byDigest = filesByDigest.get(entry.getKey());
+            List<Path> paths = byDigest.get(oldDigest);
+            if (paths != null) {
+                paths.remove(file);
+                if (paths.isEmpty()) {
+                    byDigest.remove(oldDigest);
+                }
+            }
+        }
+    }
+}
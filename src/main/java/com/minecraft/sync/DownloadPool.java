@@ -0,0 +1,363 @@
+package com.minecraft.sync;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Worker threads and concurrency limits shared by several DownloadSchedulers.
+ * Runs up to maxConcurrent transfers at once, with at most maxPerHost against any single
+ * host, in submission order across all schedulers; stages that run side by side therefore
+ * share one budget instead of multiplying it. Background items (speculative prefetches) only
+ * start while no foreground item is waiting and never take more than half of the slots,
+ * so they use spare capacity without delaying the sync itself. Both limits can be changed while
+ * items run, and with adaptive concurrency enabled a ConcurrencyController tunes them between 1
+ * and a ceiling from the measured throughput and failure rate.
+ */
+public class DownloadPool {
+
+    /**
+     * One queued item, the owner that accounts for it, the work that processes it and what
+     * to do instead if the pool shuts down before it starts (may be null). The work gets the
+     * source URL the transfer should start with, chosen when the item is dispatched.
+     */
+    private static class Task {
+        final Object owner;
+        final ModInfo item;
+        final BiConsumer<ModInfo, String> work;
+        final Consumer<ModInfo> abandon;
+        final boolean background;
+        // Host charged for the item, set when it is dispatched
+        String host;
+
+        Task(Object owner, ModInfo item, BiConsumer<ModInfo, String> work, Consumer<ModInfo> abandon, boolean background) {
+            this.owner = owner;
+            this.item = item;
+            this.work = work;
+            this.abandon = abandon;
+            this.background = background;
+        }
+    }
+
+    private final int maxConcurrent;
+    private final int maxPerHost;
+    private final ExecutorService executor;
+    private volatile ConcurrencyController controller;
+
+    // Scheduling state, guarded by this
+    private final ArrayDeque<Task> pending = new ArrayDeque<>();
+    private final ArrayDeque<Task> pendingBackground = new ArrayDeque<>();
+    private final Map<String, Integer> runningPerHost = new HashMap<>();
+    private int limit;
+    private int perHostLimit;
+    private int running = 0;
+    private int runningBackground = 0;
+    private int completed = 0;
+    private boolean shutdown = false;
+
+    public DownloadPool() {
+        this(DownloadScheduler.DEFAULT_MAX_CONCURRENT, DownloadScheduler.DEFAULT_MAX_PER_HOST);
+    }
+
+    public DownloadPool(int maxConcurrent, int maxPerHost) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.maxPerHost = Math.max(1, maxPerHost);
+        this.limit = this.maxConcurrent;
+        this.perHostLimit = this.maxPerHost;
+        // Threads are bounded by the limit, which may grow beyond the initial value
+        this.executor = Executors.newCachedThreadPool(new WorkerThreadFactory());
+    }
+
+    /**
+     * Concurrency limit the pool was created with
+     */
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /**
+     * Number of items allowed to run at once right now
+     */
+    public synchronized int getConcurrencyLimit() {
+        return limit;
+    }
+
+    /**
+     * Change the number of items allowed to run at once. Lowering it lets running items finish
+     * and starts no new ones until the pool is below the new limit.
+     */
+    public synchronized void setConcurrencyLimit(int limit) {
+        this.limit = Math.max(1, limit);
+        dispatch();
+    }
+
+    /**
+     * Number of items allowed to run at once against a single host right now
+     */
+    public synchronized int getPerHostLimit() {
+        return perHostLimit;
+    }
+
+    /**
+     * Change the number of items allowed to run at once against a single host
+     */
+    public synchronized void setPerHostLimit(int perHostLimit) {
+        this.perHostLimit = Math.max(1, perHostLimit);
+        dispatch();
+    }
+
+    /**
+     * Let a ConcurrencyController tune the limits, starting from the current ones
+     * @param maxLimit the highest limit the controller may set
+     */
+    public void enableAdaptive(int maxLimit) {
+        ConcurrencyController previous = controller;
+        if (previous != null) {
+            previous.stop();
+        }
+        ConcurrencyController created = new ConcurrencyController(this, maxLimit);
+        controller = created;
+        created.start();
+    }
+
+    /**
+     * Stop tuning the limits and return to the configured ones
+     */
+    public void disableAdaptive() {
+        ConcurrencyController previous = controller;
+        controller = null;
+        if (previous != null) {
+            previous.stop();
+            synchronized (this) {
+                perHostLimit = maxPerHost;
+                setConcurrencyLimit(maxConcurrent);
+            }
+        }
+    }
+
+    /**
+     * The controller tuning the limit, or null if the limit is fixed
+     */
+    public ConcurrencyController getController() {
+        return controller;
+    }
+
+    synchronized int getRunningCount() {
+        return running;
+    }
+
+    /**
+     * Items that finished, successfully or not, since the pool was created
+     */
+    synchronized int getCompletedCount() {
+        return completed;
+    }
+
+    /**
+     * Whether foreground items are waiting, either for a free slot or for a free slot on
+     * their host. Dispatch runs on every change, so anything still queued is held back.
+     */
+    synchronized boolean isBacklogged() {
+        return !pending.isEmpty();
+    }
+
+    /**
+     * Whether waiting foreground items are held back by the per-host limit while slots are free
+     */
+    synchronized boolean isHostBound() {
+        return !pending.isEmpty() && running < limit;
+    }
+
+    /**
+     * Per-host limit the pool was created with
+     */
+    public int getMaxPerHost() {
+        return maxPerHost;
+    }
+
+    /**
+     * Stop the worker threads once running transfers finish. Queued items are not started;
+     * each one is handed back to its owner, so a DownloadScheduler counts it as failed and
+     * its awaitCompletion returns. Items submitted afterwards are handed back the same way.
+     */
+    public void shutdown() {
+        ConcurrencyController current = controller;
+        if (current != null) {
+            current.stop();
+        }
+        List<Task> dropped = new ArrayList<>();
+        synchronized (this) {
+            shutdown = true;
+            dropped.addAll(pending);
+            dropped.addAll(pendingBackground);
+            pending.clear();
+            pendingBackground.clear();
+        }
+        executor.shutdown();
+        for (Task task : dropped) {
+            abandon(task);
+        }
+    }
+
+    void submit(DownloadScheduler owner, ModInfo item) {
+        enqueue(pending, new Task(owner, item, owner::runItem, owner::abandonItem, false));
+    }
+
+    /**
+     * Queue an item at background priority
+     * @param owner identifies the item for removePending
+     * @param work processes the item on a pool worker, starting with the given source URL
+     */
+    void submitBackground(Object owner, ModInfo item, BiConsumer<ModInfo, String> work) {
+        enqueue(pendingBackground, new Task(owner, item, work, null, true));
+    }
+
+    private void enqueue(ArrayDeque<Task> queue, Task task) {
+        synchronized (this) {
+            if (!shutdown) {
+                queue.add(task);
+                dispatch();
+                return;
+            }
+        }
+        abandon(task);
+    }
+
+    /**
+     * Hand an item that will never run back to its owner; called without the lock held
+     */
+    private static void abandon(Task task) {
+        if (task.abandon != null) {
+            task.abandon.accept(task.item);
+        }
+    }
+
+    /**
+     * Drop the items of one owner that have not started yet
+     * @return number of items removed
+     */
+    synchronized int removePending(Object owner) {
+        return removeOwned(pending, owner) + removeOwned(pendingBackground, owner);
+    }
+
+    private static int removeOwned(ArrayDeque<Task> queue, Object owner) {
+        int removed = 0;
+        Iterator<Task> it = queue.iterator();
+        while (it.hasNext()) {
+            if (it.next().owner == owner) {
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Start as many pending items as the global and per-host limits allow.
+     * Items whose hosts are all saturated stay queued without blocking items for other hosts.
+     */
+    private void dispatch() {
+        if (shutdown) {
+            return;
+        }
+        dispatchFrom(pending, limit);
+        if (pending.isEmpty()) {
+            int maxBackground = Math.max(1, limit / 2);
+            dispatchFrom(pendingBackground, Math.min(limit, running - runningBackground + maxBackground));
+        }
+    }
+
+    private void dispatchFrom(ArrayDeque<Task> queue, int limit) {
+        Iterator<Task> it = queue.iterator();
+        while (running < limit && it.hasNext()) {
+            Task task = it.next();
+            String source = pickSource(task.item);
+            if (source == null) {
+                continue;
+            }
+            it.remove();
+            task.host = hostOf(source);
+            runningPerHost.merge(task.host, 1, Integer::sum);
+            running++;
+            if (task.background) {
+                runningBackground++;
+            }
+            executor.execute(() -> run(task, source.isEmpty() ? null : source));
+        }
+    }
+
+    /**
+     * The fastest source of an item whose host has a free slot. The transfer starts with this
+     * source, so its host is the one charged; a later failover to another mirror is not.
+     * @return the URL, "" for an item without sources, or null if every host is saturated
+     */
+    private String pickSource(ModInfo item) {
+        List<String> sources = MirrorSelector.rank(item);
+        if (sources.isEmpty()) {
+            sources = Collections.singletonList("");
+        }
+        for (String url : sources) {
+            if (runningPerHost.getOrDefault(hostOf(url), 0) < perHostLimit) {
+                return url;
+            }
+        }
+        return null;
+    }
+
+    private void run(Task task, String source) {
+        try {
+            task.work.accept(task.item, source);
+        } finally {
+            synchronized (this) {
+                running--;
+                completed++;
+                if (task.background) {
+                    runningBackground--;
+                }
+                int hostRunning = runningPerHost.getOrDefault(task.host, 1) - 1;
+                if (hostRunning <= 0) {
+                    runningPerHost.remove(task.host);
+                } else {
+                    runningPerHost.put(task.host, hostRunning);
+                }
+                dispatch();
+            }
+        }
+    }
+
+    /**
+     * Extract the host used for per-host concurrency limits
+     */
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url.trim()).getHost();
+            return host != null ? host.toLowerCase() : "";
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private static final AtomicInteger poolCounter = new AtomicInteger(1);
+        private final int poolId = poolCounter.getAndIncrement();
+        private final AtomicInteger threadCounter = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "download-" + poolId + "-worker-" + threadCounter.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
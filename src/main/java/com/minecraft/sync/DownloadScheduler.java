@@ -0,0 +1,295 @@
+package com.minecraft.sync;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Bounded parallel download scheduler.
+ * Runs its items on a DownloadPool, which allows up to maxConcurrent transfers at once
+ * with at most maxPerHost against any single host; the pool is private unless one is
+ * passed in to share. Items can be submitted incrementally; awaitCompletion() closes
+ * the intake and blocks until every item is done.
+ */
+public class DownloadScheduler {
+
+    public static final int DEFAULT_MAX_CONCURRENT = Integer.getInteger("mcsync.download.concurrency", 6);
+    public static final int DEFAULT_MAX_PER_HOST = Integer.getInteger("mcsync.download.perHost", 4);
+    // Adaptive concurrency starts at the configured limit and may grow up to this one
+    public static final boolean DEFAULT_ADAPTIVE = !"false".equalsIgnoreCase(System.getProperty("mcsync.download.adaptive"));
+    public static final int DEFAULT_MAX_ADAPTIVE = Integer.getInteger("mcsync.download.maxConcurrency", 16);
+
+    /**
+     * Outcome of a single scheduled item
+     */
+    public enum Outcome {
+        ALREADY_READY,   // File was already present with correct name and hash
+        DOWNLOADED,      // File was downloaded, renamed or updated successfully
+        FAILED           // Download or verification failed
+    }
+
+    /**
+     * Scheduler progress listener. Callbacks arrive on worker threads.
+     */
+    public interface Listener {
+        void onItemStarted(ModInfo item, int completed, int total);
+        void onItemFinished(ModInfo item, Outcome outcome, int completed, int total);
+    }
+
+    /**
+     * Aggregate result of a scheduler run
+     */
+    public static class Result {
+        private final int total;
+        private final int successCount;
+        private final int downloadedCount;
+        private final int failCount;
+        private final List<ModInfo> failedItems;
+        private final long elapsedMillis;
+
+        Result(int total, int successCount, int downloadedCount, int failCount, List<ModInfo> failedItems,
+               long elapsedMillis) {
+            this.total = total;
+            this.successCount = successCount;
+            this.downloadedCount = downloadedCount;
+            this.failCount = failCount;
+            this.failedItems = Collections.unmodifiableList(failedItems);
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public int getTotal() { return total; }
+        public int getSuccessCount() { return successCount; }
+        /** Successful items that needed a transfer or rename, i.e. were not already ready */
+        public int getDownloadedCount() { return downloadedCount; }
+        public int getFailCount() { return failCount; }
+        public List<ModInfo> getFailedItems() { return failedItems; }
+        public long getElapsedMillis() { return elapsedMillis; }
+    }
+
+    /**
+     * Listener that prints per-item progress lines for CLI mode
+     */
+    public static class ConsoleListener implements Listener {
+        private final String itemType;
+
+        public ConsoleListener(String itemType) {
+            this.itemType = itemType;
+        }
+
+        @Override
+        public void onItemStarted(ModInfo item, int completed, int total) {
+            // Start events are noisy with many workers; only completions are printed
+        }
+
+        @Override
+        public void onItemFinished(ModInfo item, Outcome outcome, int completed, int total) {
+            String mark;
+            switch (outcome) {
+                case ALREADY_READY:
+                    mark = "= ";
+                    break;
+                case DOWNLOADED:
+                    mark = "✓ ";
+                    break;
+                default:
+                    mark = "✗ ";
+                    break;
+            }
+            SyncLog.info(String.format("[%s %d/%d] %s%s", itemType, completed, total, mark, item.getFriendlyName()));
+        }
+    }
+
+    private final DownloadPool pool;
+    // Whether the pool was created for this scheduler alone and is shut down with it
+    private final boolean ownsPool;
+    private volatile Listener listener;
+    private final ProgressModel progress = new ProgressModel();
+
+    // Progress of this scheduler's items, guarded by this
+    private final List<ModInfo> failedItems = new ArrayList<>();
+    private int submitted = 0;
+    private int completed = 0;
+    private int successCount = 0;
+    private int downloadedCount = 0;
+    private int failCount = 0;
+    private boolean closed = false;
+    private final long startTime = System.currentTimeMillis();
+
+    public DownloadScheduler() {
+        this(DEFAULT_MAX_CONCURRENT, DEFAULT_MAX_PER_HOST);
+    }
+
+    public DownloadScheduler(int maxConcurrent, int maxPerHost) {
+        this.pool = new DownloadPool(maxConcurrent, maxPerHost);
+        this.ownsPool = true;
+    }
+
+    /**
+     * Schedule on a pool shared with other schedulers, e.g. stages running side by side
+     */
+    public DownloadScheduler(DownloadPool pool) {
+        this.pool = pool;
+        this.ownsPool = false;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public int getMaxConcurrent() {
+        return pool.getMaxConcurrent();
+    }
+
+    public int getMaxPerHost() {
+        return pool.getMaxPerHost();
+    }
+
+    /**
+     * Byte-level progress of every item submitted to this scheduler
+     */
+    public ProgressModel getProgress() {
+        return progress;
+    }
+
+    /**
+     * Queue a single item for download
+     */
+    public void submit(ModInfo item) {
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Scheduler no longer accepts items");
+            }
+            submitted++;
+            progress.addItems(1);
+        }
+        pool.submit(this, item);
+    }
+
+    /**
+     * Queue several items for download
+     */
+    public void submitAll(Collection<ModInfo> items) {
+        for (ModInfo item : items) {
+            submit(item);
+        }
+    }
+
+    /**
+     * Stop accepting new items and wait until all queued items have finished
+     */
+    public Result awaitCompletion() throws InterruptedException {
+        synchronized (this) {
+            closed = true;
+            while (completed < submitted) {
+                wait();
+            }
+        }
+        if (ownsPool) {
+            pool.shutdown();
+        }
+        HashIndex.getInstance().save();
+        MirrorStats.getInstance().save();
+        synchronized (this) {
+            return new Result(submitted, successCount, downloadedCount, failCount, new ArrayList<>(failedItems),
+                System.currentTimeMillis() - startTime);
+        }
+    }
+
+    /**
+     * Abandon queued items and stop accepting new ones; transfers already running finish on their own
+     */
+    public void cancel() {
+        synchronized (this) {
+            closed = true;
+        }
+        int removed = pool.removePending(this);
+        synchronized (this) {
+            submitted -= removed;
+            progress.removeItems(removed);
+            notifyAll();
+        }
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Account for an item the pool dropped without running it because the pool was shut down
+     */
+    void abandonItem(ModInfo item) {
+        SyncLog.error("Download not started, sync stopped: " + item.getFriendlyName());
+        int completedNow;
+        int totalNow;
+        synchronized (this) {
+            completed++;
+            failCount++;
+            failedItems.add(item);
+            completedNow = completed;
+            totalNow = submitted;
+            notifyAll();
+        }
+        progress.startTransfer().finish();
+
+        Listener l = listener;
+        if (l != null) {
+            l.onItemFinished(item, Outcome.FAILED, completedNow, totalNow);
+        }
+    }
+
+    /**
+     * Download one item on a pool worker and account for its outcome
+     * @param source the URL to try first, or null to rank the item's sources here
+     */
+    void runItem(ModInfo item, String source) {
+        Listener l = listener;
+        if (l != null) {
+            int completedSnapshot;
+            int totalSnapshot;
+            synchronized (this) {
+                completedSnapshot = completed;
+                totalSnapshot = submitted;
+            }
+            l.onItemStarted(item, completedSnapshot, totalSnapshot);
+        }
+
+        Outcome outcome;
+        ProgressModel.Transfer transfer = progress.startTransfer();
+        try {
+            if (FileDownloader.isFileReady(item)) {
+                outcome = Outcome.ALREADY_READY;
+            } else if (FileDownloader.downloadFile(item, source, transfer)) {
+                outcome = Outcome.DOWNLOADED;
+            } else {
+                outcome = Outcome.FAILED;
+            }
+        } catch (Exception e) {
+            SyncLog.error("Unexpected error downloading " + item.getFriendlyName() + ": " + e.getMessage());
+            outcome = Outcome.FAILED;
+        } finally {
+            transfer.finish();
+        }
+
+        int completedNow;
+        int totalNow;
+        synchronized (this) {
+            completed++;
+            if (outcome == Outcome.FAILED) {
+                failCount++;
+                failedItems.add(item);
+            } else {
+                successCount++;
+                if (outcome == Outcome.DOWNLOADED) {
+                    downloadedCount++;
+                }
+            }
+            completedNow = completed;
+            totalNow = submitted;
+            notifyAll();
+        }
+
+        if (l != null) {
+            l.onItemFinished(item, outcome, completedNow, totalNow);
+        }
+    }
+}
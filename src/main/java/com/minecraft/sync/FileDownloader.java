@@ -1,23 +1,34 @@
 package com.minecraft.sync;
 
 import java.io.*;
-import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
 
 public class FileDownloader {
     
     private static final int BUFFER_SIZE = 8192;
-    private static final int CONNECT_TIMEOUT = 10000; // 10 seconds
-    private static final int READ_TIMEOUT = 30000; // 30 seconds
     
     // Base download directory (same directory as JAR)
     private static final String BASE_DIR = System.getProperty("user.dir");
     
+    // Bytes that did not have to be re-read from disk thanks to in-stream hashing
+    private static final AtomicLong rehashBytesAvoided = new AtomicLong();
+    
+    // Attempts per source while another mirror is left to fail over to
+    private static final int MIRROR_ATTEMPTS = 2;
+    
     /**
      * Download progress callback interface
      * Parameters: (bytesRead, totalBytes)
@@ -34,8 +45,16 @@ public class FileDownloader {
      * @return true if download successful, false otherwise
      */
     public static boolean downloadFile(ModInfo modInfo, ProgressCallback progressCallback) {
-        if (modInfo.getRes() == null || modInfo.getRes().trim().isEmpty()) {
-            System.err.println("No download URL found for: " + modInfo.getFriendlyName());
+        return downloadFile(modInfo, null, progressCallback);
+    }
+    
+    /**
+     * Download a manifest entry, starting with a source already picked by the caller
+     * @param firstSource one of the entry's sources to try first, or null to rank them here
+     */
+    static boolean downloadFile(ModInfo modInfo, String firstSource, ProgressCallback progressCallback) {
+        if (modInfo.getSources().isEmpty()) {
+            SyncLog.error("No download URL found for: " + modInfo.getFriendlyName());
             return false;
         }
         
@@ -43,7 +62,7 @@ public class FileDownloader {
             // Create target directory structure
             Path targetDir = createDirectoryStructure(modInfo.getCatelog());
             if (targetDir == null) {
-                System.err.println("Failed to create directory for catalog: " + modInfo.getCatelog());
+                SyncLog.error("Failed to create directory for catalog: " + modInfo.getCatelog());
                 return false;
             }
             
@@ -52,57 +71,65 @@ public class FileDownloader {
             
             Path targetFile = targetDir.resolve(targetFileName);
             String expectedHash = modInfo.getHash();
+            DigestAlgorithm algorithm = modInfo.getDigestAlgorithm();
+            if (algorithm == null) {
+                SyncLog.error("Unsupported hash_algo '" + modInfo.getHashAlgo() + "' for: " + modInfo.getFriendlyName());
+                return false;
+            }
             
             // Hash-based file verification and management
-            FileStatus status = checkFileStatus(targetDir, targetFileName, modInfo.getFriendlyName(), expectedHash);
+            FileStatus status = checkFileStatus(targetDir, targetFileName, modInfo.getFriendlyName(), expectedHash, algorithm);
             
             switch (status.type) {
                 case FILE_UP_TO_DATE:
-                    System.out.println("File is up-to-date: " + targetFileName);
-                    if (progressCallback != null) {
-                        progressCallback.onProgress(100, 100);
-                    }
+                    SyncLog.info("File is up-to-date: " + targetFileName);
                     return true;
                     
                 case FILE_NEEDS_UPDATE:
-                    System.out.println("File exists but hash mismatch, updating: " + targetFileName);
-                    // Delete old file before downloading new version
-                    try {
-                        Files.delete(status.existingFile);
-                        System.out.println("Deleted outdated file: " + status.existingFile.getFileName());
-                    } catch (Exception e) {
-                        System.err.println("Failed to delete old file: " + e.getMessage());
-                    }
+                    // The outdated file stays in place until the verified replacement is moved over it
+                    SyncLog.info("File exists but hash mismatch, updating: " + targetFileName);
                     break;
                     
                 case FILE_NEEDS_RENAME:
-                    System.out.println("Found file with matching hash but different name, renaming...");
+                    SyncLog.info("Found file with matching hash but different name, renaming...");
                     try {
                         Path newName = targetDir.resolve(targetFileName);
-                        Files.move(status.existingFile, newName);
-                        System.out.println("Renamed " + status.existingFile.getFileName() + " to " + newName.getFileName());
-                        
-                        if (progressCallback != null) {
-                            progressCallback.onProgress(100, 100);
-                        }
+                        atomicReplace(status.existingFile, newName);
+                        HashIndex.getInstance().remove(status.existingFile);
+                        HashIndex.getInstance().record(newName, algorithm, expectedHash);
+                        DirectoryInventory.of(targetDir).move(status.existingFile, newName);
+                        SyncLog.info("Renamed " + status.existingFile.getFileName() + " to " + newName.getFileName());
                         return true;
                     } catch (Exception e) {
-                        System.err.println("Failed to rename file: " + e.getMessage());
+                        SyncLog.error("Failed to rename file: " + e.getMessage());
                         // Continue with download if rename fails
                     }
                     break;
                     
                 case FILE_NOT_FOUND:
                 default:
-                    System.out.println("File not found, downloading: " + targetFileName);
+                    SyncLog.info("File not found, downloading: " + targetFileName);
                     break;
             }
             
-            // Download the file
-            return downloadFileFromUrl(modInfo.getRes(), targetFile, progressCallback, expectedHash);
+            // Another instance on this host may already have downloaded the same content
+            boolean linkable = ContentStore.isLinkable(modInfo.getCatelog());
+            if (materializeFromStore(expectedHash, algorithm, targetFile, linkable)) {
+                SyncLog.info("Served from shared cache: " + targetFileName);
+                return true;
+            }
+            
+            boolean downloaded = downloadFromSources(modInfo, firstSource, targetFile, progressCallback);
+            
+            // Only content verified against the manifest hash is shared with other instances
+            ContentStore store = ContentStore.getInstance();
+            if (downloaded && store != null && expectedHash != null && !expectedHash.trim().isEmpty()) {
+                store.put(targetFile, expectedHash, linkable);
+            }
+            return downloaded;
             
         } catch (Exception e) {
-            System.err.println("Error downloading " + modInfo.getFriendlyName() + ": " + e.getMessage());
+            SyncLog.error("Error downloading " + modInfo.getFriendlyName() + ": " + e.getMessage());
             e.printStackTrace();
             return false;
         }
@@ -175,43 +202,50 @@ public class FileDownloader {
         return ".jar";
     }
     
+    /**
+     * Get the sync root directory that catalog directories are created under
+     */
+    static Path getBaseDir() {
+        return Paths.get(BASE_DIR);
+    }
+    
+    /**
+     * Resolve the directory for a catalog without creating it
+     */
+    public static Path resolveCatalogDirectory(String catalog) {
+        Path baseDir = Paths.get(BASE_DIR);
+        switch (catalog.toLowerCase()) {
+            case "mods":
+                return baseDir.resolve("mods");
+            case "resourcepacks":
+                return baseDir.resolve("resourcepacks");
+            case "shaderpacks":
+                return baseDir.resolve("shaderpacks");
+            case "config":
+                return baseDir.resolve("config");
+            default:
+                // For unknown catalogs, use a directory with the catalog name
+                return baseDir.resolve(catalog.toLowerCase());
+        }
+    }
+    
     /**
      * Create the appropriate directory structure based on catalog (public for UI access)
      */
     public static Path createDirectoryStructure(String catalog) {
         try {
-            Path baseDir = Paths.get(BASE_DIR);
-            Path targetDir;
-            
-            switch (catalog.toLowerCase()) {
-                case "mods":
-                    targetDir = baseDir.resolve("mods");
-                    break;
-                case "resourcepacks":
-                    targetDir = baseDir.resolve("resourcepacks");
-                    break;
-                case "shaderpacks":
-                    targetDir = baseDir.resolve("shaderpacks");
-                    break;
-                case "config":
-                    targetDir = baseDir.resolve("config");
-                    break;
-                default:
-                    // For unknown catalogs, create a directory with the catalog name
-                    targetDir = baseDir.resolve(catalog.toLowerCase());
-                    break;
-            }
+            Path targetDir = resolveCatalogDirectory(catalog);
             
             // Create directory if it doesn't exist
             if (!Files.exists(targetDir)) {
                 Files.createDirectories(targetDir);
-                System.out.println("Created directory: " + targetDir.toString());
+                SyncLog.info("Created directory: " + targetDir.toString());
             }
             
             return targetDir;
             
         } catch (Exception e) {
-            System.err.println("Failed to create directory structure: " + e.getMessage());
+            SyncLog.error("Failed to create directory structure: " + e.getMessage());
             return null;
         }
     }
@@ -230,102 +264,437 @@ public class FileDownloader {
     }
     
     /**
-     * Download file from URL with progress tracking and hash verification
+     * Download a manifest entry to the target path, trying its sources fastest first and
+     * failing over to the next one when a source fails. While another source remains, a
+     * source gets fewer retries so a slow failure does not hold up the fallback.
+     * Stops without failing over if the progress callback aborts the transfer.
+     * @param firstSource source to try before the ranked others, or null
+     */
+    static boolean downloadFromSources(ModInfo modInfo, String firstSource, Path targetFile,
+                                       ProgressCallback progressCallback) {
+        List<String> sources = MirrorSelector.rank(modInfo, firstSource);
+        String expectedHash = modInfo.getHash();
+        DigestAlgorithm algorithm = modInfo.getDigestAlgorithm();
+        for (int i = 0; i < sources.size(); i++) {
+            String url = sources.get(i);
+            boolean lastSource = i == sources.size() - 1;
+            int maxAttempts = lastSource ? RetryPolicy.getInstance().getMaxAttempts() : MIRROR_ATTEMPTS;
+            // Only an item with somewhere else to go skips a paused host; the last source is waited for
+            boolean failFast = !lastSource;
+            if (i > 0) {
+                SyncLog.info("Trying mirror " + (i + 1) + "/" + sources.size() + " for "
+                    + targetFile.getFileName() + ": " + RetryPolicy.hostKey(url));
+            }
+            
+            MirrorSelector.Measurement measurement = new MirrorSelector.Measurement(url, progressCallback);
+            // Large assets are fetched as parallel byte ranges when the server allows it,
+            // unless an interrupted single-stream download is waiting to be resumed
+            boolean downloaded;
+            SegmentedDownloader.Probe probe = null;
+            if (SegmentedDownloader.isCandidate(modInfo) && !new PartialDownload(targetFile).hasPartFile()) {
+                probe = SegmentedDownloader.probe(url);
+            }
+            if (probe != null) {
+                downloaded = downloadSegmented(url, probe, targetFile, measurement, expectedHash, algorithm, maxAttempts, failFast);
+            } else {
+                downloaded = downloadFileFromUrl(url, targetFile, measurement, expectedHash, algorithm, maxAttempts, failFast);
+            }
+            measurement.finish(downloaded);
+            if (downloaded) {
+                return true;
+            }
+            if (measurement.isAborted()) {
+                return false;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Download file from URL with progress tracking and hash verification.
+     * Data is written to a ".part" sidecar; an interrupted transfer is resumed with a
+     * Range request on the next attempt when the server supports it. Transient failures are
+     * retried right away under the shared RetryPolicy, so a retry resumes from the part file.
+     */
+    static boolean downloadFileFromUrl(String urlStr, Path targetFile, ProgressCallback progressCallback,
+                                       String expectedHash, DigestAlgorithm algorithm) {
+        return downloadFileFromUrl(urlStr, targetFile, progressCallback, expectedHash, algorithm,
+            RetryPolicy.getInstance().getMaxAttempts(), false);
+    }
+    
+    private static boolean downloadFileFromUrl(String urlStr, Path targetFile, ProgressCallback progressCallback,
+                                               String expectedHash, DigestAlgorithm algorithm, int maxAttempts,
+                                               boolean failFast) {
+        Received received;
+        try {
+            received = RetryPolicy.getInstance().execute(urlStr, targetFile.getFileName().toString(), maxAttempts, failFast,
+                () -> attemptDownload(urlStr, targetFile, progressCallback, expectedHash, algorithm));
+        } catch (IOException e) {
+            // Already logged by the attempt or the retry policy
+            return false;
+        }
+        return received != null && completeDownload(new PartialDownload(targetFile), targetFile, expectedHash, algorithm, received);
+    }
+    
+    /**
+     * Content of one attempt, complete in the part file but not yet verified or moved into place
      */
-    private static boolean downloadFileFromUrl(String urlStr, Path targetFile, ProgressCallback progressCallback, String expectedHash) {
-        HttpURLConnection connection = null;
+    private static final class Received {
+        // Digest of the content, or null if no hash was expected
+        final String actualHash;
+        
+        Received(String actualHash) {
+            this.actualHash = actualHash;
+        }
+    }
+    
+    /**
+     * One transfer attempt into the part file. Verification and the move onto the target run
+     * afterwards in completeDownload, outside the retry loop, since they only touch local files.
+     * @return the received content, or null if the transfer was stopped by the progress callback
+     * @throws IOException on failure; transport errors are retried, LocalFileException is not.
+     *         Any partial data is kept for resume.
+     */
+    private static Received attemptDownload(String urlStr, Path targetFile, ProgressCallback progressCallback,
+                                            String expectedHash, DigestAlgorithm algorithm) throws IOException {
+        PartialDownload partial = new PartialDownload(targetFile);
+        Path partFile = partial.getPartFile();
+        long resumeFrom = partial.resumableBytes(urlStr, expectedHash);
+        
+        HttpTransport.Response response = null;
         InputStream inputStream = null;
         FileOutputStream outputStream = null;
+        long totalBytesRead = 0;
+        boolean keepPartial = false;
         
         try {
-            URL url = new URL(urlStr);
-            connection = (HttpURLConnection) url.openConnection();
-            
-            // Set timeouts and headers
-            connection.setConnectTimeout(CONNECT_TIMEOUT);
-            connection.setReadTimeout(READ_TIMEOUT);
-            connection.setRequestProperty("User-Agent", "MinecraftResSyncTool/1.0");
-            connection.setRequestProperty("Accept", "*/*");
-            
-            // Connect and check response
-            connection.connect();
-            int responseCode = connection.getResponseCode();
+            Map<String, String> headers = new LinkedHashMap<>();
+            headers.put("Accept", "*/*");
+            
+            if (resumeFrom > 0) {
+                headers.put("Range", "bytes=" + resumeFrom + "-");
+                String validator = partial.getIfRangeValidator();
+                if (validator != null) {
+                    headers.put("If-Range", validator);
+                }
+            }
             
-            if (responseCode != HttpURLConnection.HTTP_OK) {
-                System.err.println("HTTP error " + responseCode + " for URL: " + urlStr);
-                return false;
+            // Send over the shared transport so connections are reused across files
+            response = HttpTransport.getInstance().get(urlStr, headers);
+            int responseCode = response.getStatusCode();
+            
+            boolean append = false;
+            if (resumeFrom > 0 && responseCode == 206) {
+                append = rangeStartsAt(response.getHeader("Content-Range"), resumeFrom);
+                if (!append) {
+                    SyncLog.error("Unexpected Content-Range for " + urlStr + ", restarting download");
+                    response.close();
+                    response = null;
+                    partial.discard();
+                    return attemptDownload(urlStr, targetFile, progressCallback, expectedHash, algorithm);
+                }
+            } else if (resumeFrom > 0 && responseCode == 416) {
+                // Stored partial no longer lines up with the resource
+                SyncLog.info("Partial download is no longer valid, restarting: " + targetFile.getFileName());
+                response.close();
+                response = null;
+                partial.discard();
+                return attemptDownload(urlStr, targetFile, progressCallback, expectedHash, algorithm);
+            } else if (responseCode != 200) {
+                throw HttpStatusException.of("HTTP error " + responseCode, response);
+            } else if (resumeFrom > 0) {
+                SyncLog.info("Server did not honour resume request, restarting: " + targetFile.getFileName());
             }
             
             // Get content length for progress tracking
-            long contentLength = connection.getContentLengthLong();
+            long contentLength = response.getContentLength();
+            long totalLength = contentLength < 0 ? -1 : (append ? resumeFrom + contentLength : contentLength);
+            
+            // Digest the body as it arrives so verification needs no second read pass
+            boolean verifyHash = expectedHash != null && !expectedHash.trim().isEmpty();
+            MessageDigest digest = verifyHash ? algorithm.newDigest() : null;
+            
+            if (append) {
+                // Bring the digest up to date with the bytes kept from the earlier attempt
+                if (digest != null) {
+                    try {
+                        digestFilePrefix(partFile, resumeFrom, digest);
+                    } catch (IOException e) {
+                        throw new LocalFileException("Cannot read " + partFile.getFileName(), e);
+                    }
+                }
+                totalBytesRead = resumeFrom;
+                SyncLog.info("Resuming: " + targetFile.getFileName() + " from " + formatBytes(resumeFrom)
+                    + " of " + formatBytes(totalLength));
+            } else {
+                partial.begin(urlStr, response.getHeader("ETag"),
+                    response.getHeader("Last-Modified"), expectedHash);
+                SyncLog.info("Downloading: " + targetFile.getFileName() + " (" + formatBytes(contentLength) + ")");
+            }
             
-            inputStream = connection.getInputStream();
-            outputStream = new FileOutputStream(targetFile.toFile());
+            inputStream = response.getBody();
+            try {
+                outputStream = new FileOutputStream(partFile.toFile(), append);
+            } catch (IOException e) {
+                throw new LocalFileException("Cannot write " + partFile.getFileName(), e);
+            }
+            partial.save(totalBytesRead);
+            keepPartial = true;
             
             byte[] buffer = new byte[BUFFER_SIZE];
-            long totalBytesRead = 0;
             int bytesRead;
+            BandwidthLimiter limiter = BandwidthLimiter.getInstance();
             
-            System.out.println("Downloading: " + targetFile.getFileName() + " (" + formatBytes(contentLength) + ")");
+            // Where this attempt starts, so a resumed prefix is not taken for received bytes
+            if (progressCallback != null) {
+                progressCallback.onProgress(totalBytesRead, totalLength);
+            }
             
             while ((bytesRead = inputStream.read(buffer)) != -1) {
-                outputStream.write(buffer, 0, bytesRead);
+                limiter.acquire(bytesRead);
+                try {
+                    outputStream.write(buffer, 0, bytesRead);
+                } catch (IOException e) {
+                    throw new LocalFileException("Cannot write " + partFile.getFileName(), e);
+                }
+                if (digest != null) {
+                    digest.update(buffer, 0, bytesRead);
+                }
                 totalBytesRead += bytesRead;
                 
                 // Report progress
                 if (progressCallback != null) {
-                    progressCallback.onProgress(totalBytesRead, contentLength);
+                    progressCallback.onProgress(totalBytesRead, totalLength);
                 }
             }
             
-            System.out.println("Downloaded successfully: " + targetFile.getFileName());
+            try {
+                outputStream.close();
+            } catch (IOException e) {
+                throw new LocalFileException("Cannot write " + partFile.getFileName(), e);
+            }
+            outputStream = null;
             
-            // Verify hash if provided
-            if (expectedHash != null && !expectedHash.trim().isEmpty()) {
-                String actualHash = calculateFileHash(targetFile);
-                if (actualHash != null && actualHash.equalsIgnoreCase(expectedHash)) {
-                    System.out.println("Hash verification successful: " + actualHash);
-                    return true;
-                } else {
-                    System.err.println("Hash verification failed!");
-                    System.err.println("Expected: " + expectedHash);
-                    System.err.println("Actual: " + actualHash);
-                    
-                    // Delete corrupted file
-                    try {
-                        Files.delete(targetFile);
-                        System.out.println("Deleted corrupted file: " + targetFile.getFileName());
-                    } catch (Exception deleteEx) {
-                        System.err.println("Failed to delete corrupted file: " + deleteEx.getMessage());
-                    }
-                    return false;
-                }
+            if (totalLength >= 0 && totalBytesRead != totalLength) {
+                throw new IOException("Connection closed after " + totalBytesRead + " of " + totalLength + " bytes");
             }
+            keepPartial = false;
             
-            return true;
+            SyncLog.info("Downloaded successfully: " + targetFile.getFileName());
+            
+            String actualHash = null;
+            if (verifyHash) {
+                actualHash = toHex(digest.digest());
+                long streamedBytes = totalBytesRead - (append ? resumeFrom : 0);
+                long avoidedTotal = rehashBytesAvoided.addAndGet(streamedBytes);
+                SyncLog.info("Hash computed in-stream, re-read avoided: " + formatBytes(streamedBytes)
+                    + " (session total " + formatBytes(avoidedTotal) + ")");
+            }
+            return new Received(actualHash);
             
         } catch (Exception e) {
-            System.err.println("Download failed for " + urlStr + ": " + e.getMessage());
+            SyncLog.error("Download failed for " + urlStr + ": " + e.getMessage());
             
-            // Clean up partial download
-            try {
-                if (Files.exists(targetFile)) {
-                    Files.delete(targetFile);
+            if (keepPartial) {
+                // Keep what we have so the next attempt can resume
+                try {
+                    if (outputStream != null) {
+                        outputStream.close();
+                        outputStream = null;
+                    }
+                } catch (Exception closeEx) {
+                    SyncLog.error("Error closing partial download: " + closeEx.getMessage());
                 }
-            } catch (Exception deleteEx) {
-                System.err.println("Failed to clean up partial download: " + deleteEx.getMessage());
+                partial.save(totalBytesRead);
+                SyncLog.info("Kept partial download for resume: " + partFile.getFileName()
+                    + " (" + formatBytes(totalBytesRead) + ")");
             }
             
-            return false;
+            if (e instanceof IOException) {
+                throw (IOException) e;
+            }
+            return null;
             
         } finally {
             // Clean up resources
             try {
                 if (inputStream != null) inputStream.close();
                 if (outputStream != null) outputStream.close();
-                if (connection != null) connection.disconnect();
+                if (response != null) response.close();
             } catch (Exception e) {
-                System.err.println("Error closing resources: " + e.getMessage());
+                SyncLog.error("Error closing resources: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Download a large file as concurrent byte ranges and verify the assembled result
+     */
+    private static boolean downloadSegmented(String urlStr, SegmentedDownloader.Probe probe, Path targetFile,
+                                             ProgressCallback progressCallback, String expectedHash,
+                                             DigestAlgorithm algorithm, int maxAttempts, boolean failFast) {
+        Received received;
+        try {
+            received = RetryPolicy.getInstance().execute(urlStr, targetFile.getFileName().toString(), maxAttempts, failFast,
+                () -> attemptSegmented(urlStr, probe, targetFile, progressCallback, algorithm));
+        } catch (IOException e) {
+            return false;
+        }
+        return received != null && completeDownload(new PartialDownload(targetFile), targetFile, expectedHash, algorithm, received);
+    }
+    
+    /**
+     * One segmented transfer attempt into the part file
+     * @return the received content, or null if the transfer was stopped by the progress callback
+     */
+    private static Received attemptSegmented(String urlStr, SegmentedDownloader.Probe probe, Path targetFile,
+                                             ProgressCallback progressCallback, DigestAlgorithm algorithm) throws IOException {
+        PartialDownload partial = new PartialDownload(targetFile);
+        try {
+            SyncLog.info("Downloading: " + targetFile.getFileName() + " (" + formatBytes(probe.contentLength) + ")");
+            String actualHash = SegmentedDownloader.download(urlStr, probe, partial.getPartFile(), progressCallback, algorithm);
+            SyncLog.info("Downloaded successfully: " + targetFile.getFileName());
+            return new Received(actualHash);
+            
+        } catch (Exception e) {
+            // Segment progress is not tracked across runs, so nothing is kept for resume
+            SyncLog.error("Segmented download failed for " + urlStr + ": " + e.getMessage());
+            partial.discard();
+            if (e instanceof IOException) {
+                throw (IOException) e;
+            }
+            return null;
+        }
+    }
+    
+    /**
+     * Flush, verify and move a received part file onto the target. Failures here are local, so
+     * the part file is dropped: it is complete, and resuming it would only ask for a range past
+     * the end of the file.
+     */
+    private static boolean completeDownload(PartialDownload partial, Path targetFile, String expectedHash,
+                                            DigestAlgorithm algorithm, Received received) {
+        try {
+            // Make sure the data is on disk before the part file can replace the target
+            try (FileChannel channel = FileChannel.open(partial.getPartFile(), StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            
+            if (expectedHash != null && !expectedHash.trim().isEmpty()) {
+                if (expectedHash.equalsIgnoreCase(received.actualHash)) {
+                    SyncLog.info("Hash verification successful (" + algorithm.getTag() + "): " + received.actualHash);
+                } else {
+                    SyncLog.error("Hash verification failed!");
+                    SyncLog.error("Expected: " + expectedHash);
+                    SyncLog.error("Actual: " + received.actualHash);
+                    
+                    // Corrupted data cannot be resumed
+                    partial.discard();
+                    SyncLog.info("Deleted corrupted file: " + partial.getPartFile().getFileName());
+                    return false;
+                }
+            }
+            
+            promoteDownloadedFile(partial, targetFile, algorithm, received.actualHash);
+            return true;
+        } catch (IOException e) {
+            SyncLog.error("Failed to move " + targetFile.getFileName() + " into place: " + e.getMessage());
+            partial.discard();
+            return false;
+        }
+    }
+    
+    /**
+     * Link or copy content from the shared store onto the target, after checking the blob
+     * still matches its hash (a hardlinked copy could have been edited in place elsewhere)
+     */
+    private static boolean materializeFromStore(String expectedHash, DigestAlgorithm algorithm, Path targetFile, boolean link) {
+        ContentStore store = ContentStore.getInstance();
+        if (store == null || expectedHash == null || !store.contains(expectedHash)) {
+            return false;
+        }
+        if (!store.materialize(expectedHash, targetFile, link)) {
+            return false;
+        }
+        
+        String actualHash = HashIndex.getInstance().getDigest(targetFile, algorithm);
+        if (!expectedHash.equalsIgnoreCase(actualHash)) {
+            SyncLog.error("Shared cache entry is corrupt, downloading instead: " + targetFile.getFileName());
+            store.remove(expectedHash);
+            try {
+                Files.deleteIfExists(targetFile);
+            } catch (IOException e) {
+                SyncLog.error("Failed to remove corrupt file: " + e.getMessage());
+            }
+            HashIndex.getInstance().remove(targetFile);
+            return false;
+        }
+        
+        DirectoryInventory.of(targetFile.getParent()).update(targetFile, algorithm, actualHash);
+        try {
+            store.recordHit(Files.size(targetFile));
+        } catch (IOException e) {
+            store.recordHit(0);
+        }
+        return true;
+    }
+    
+    /**
+     * Move a verified part file onto the target name and record its digest
+     */
+    private static void promoteDownloadedFile(PartialDownload partial, Path targetFile, DigestAlgorithm algorithm,
+                                              String actualHash) throws IOException {
+        atomicReplace(partial.getPartFile(), targetFile);
+        partial.discardMeta();
+        
+        if (actualHash != null) {
+            HashIndex.getInstance().record(targetFile, algorithm, actualHash);
+            DirectoryInventory.of(targetFile.getParent()).update(targetFile, algorithm, actualHash);
+        }
+    }
+    
+    /**
+     * Replace target with source in a single step, so readers see either the old or the new file.
+     * Both paths must be in the same directory.
+     */
+    static void atomicReplace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            // Some file systems cannot rename atomically; a plain replace is the best we can do
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    /**
+     * Check that a Content-Range header ("bytes start-end/total") starts at the expected offset
+     */
+    private static boolean rangeStartsAt(String contentRange, long expectedStart) {
+        if (contentRange == null || !contentRange.startsWith("bytes ")) {
+            return false;
+        }
+        try {
+            int dash = contentRange.indexOf('-');
+            return Long.parseLong(contentRange.substring(6, dash).trim()) == expectedStart;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Feed the first length bytes of a file into a digest
+     */
+    private static void digestFilePrefix(Path file, long length, MessageDigest digest) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long remaining = length;
+            while (remaining > 0) {
+                int bytesRead = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (bytesRead == -1) {
+                    throw new IOException("Partial file shorter than expected");
+                }
+                digest.update(buffer, 0, bytesRead);
+                remaining -= bytesRead;
             }
         }
     }
@@ -333,7 +702,7 @@ public class FileDownloader {
     /**
      * Format bytes to human-readable string
      */
-    private static String formatBytes(long bytes) {
+    static String formatBytes(long bytes) {
         if (bytes < 0) return "Unknown size";
         if (bytes < 1024) return bytes + " B";
         if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
@@ -369,18 +738,12 @@ public class FileDownloader {
     
     /**
      * Check if a file is ready (exists with correct name and hash)
-     * This is different from fileExists() which returns true for files that need renaming
+     * This is different from fileExists() which returns true for files that need renaming.
+     * Hashing runs on the bulk verification pool, so download threads never compete for more cores than exist.
      */
     public static boolean isFileReady(ModInfo modInfo) {
         try {
-            Path targetDir = createDirectoryStructure(modInfo.getCatelog());
-            if (targetDir == null) return false;
-            
-            String fileName = getTargetFileName(modInfo);
-            
-            FileStatus status = checkFileStatus(targetDir, fileName, modInfo.getFriendlyName(), modInfo.getHash());
-            return status.type == FileStatusType.FILE_UP_TO_DATE;
-            
+            return BulkVerifier.verify(modInfo).type == FileStatusType.FILE_UP_TO_DATE;
         } catch (Exception e) {
             return false;
         }
@@ -390,24 +753,53 @@ public class FileDownloader {
      * Check if a file exists in the appropriate directory (hash-aware)
      */
     public static boolean fileExists(ModInfo modInfo) {
+        try {
+            return BulkVerifier.verify(modInfo).type != FileStatusType.FILE_NOT_FOUND;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Resolve the hash-based status of a manifest entry (public for UI access)
+     */
+    public static FileStatus checkFileStatus(ModInfo modInfo) {
         try {
             Path targetDir = createDirectoryStructure(modInfo.getCatelog());
-            if (targetDir == null) return false;
+            if (targetDir == null) return new FileStatus(FileStatusType.FILE_NOT_FOUND, null);
             
             String fileName = getTargetFileName(modInfo);
-            
-            FileStatus status = checkFileStatus(targetDir, fileName, modInfo.getFriendlyName(), modInfo.getHash());
-            return status.type != FileStatusType.FILE_NOT_FOUND;
+            return checkFileStatus(targetDir, fileName, modInfo.getFriendlyName(), modInfo.getHash(),
+                modInfo.getDigestAlgorithm());
             
         } catch (Exception e) {
-            return false;
+            return new FileStatus(FileStatusType.FILE_NOT_FOUND, null);
         }
     }
     
+    /**
+     * Resolve the status of a manifest entry without creating directories or writing anything
+     */
+    public static FileStatus inspectFileStatus(ModInfo modInfo) {
+        try {
+            return checkFileStatus(resolveCatalogDirectory(modInfo.getCatelog()), getTargetFileName(modInfo),
+                modInfo.getFriendlyName(), modInfo.getHash(), modInfo.getDigestAlgorithm());
+        } catch (Exception e) {
+            return new FileStatus(FileStatusType.FILE_NOT_FOUND, null);
+        }
+    }
+    
+    /**
+     * Path the entry is stored at once synced
+     */
+    public static Path getTargetFile(ModInfo modInfo) {
+        return resolveCatalogDirectory(modInfo.getCatelog()).resolve(getTargetFileName(modInfo));
+    }
+    
     /**
      * File status types for hash-based verification
      */
-    private enum FileStatusType {
+    public enum FileStatusType {
         FILE_NOT_FOUND,        // No file exists
         FILE_UP_TO_DATE,       // File exists with correct hash
         FILE_NEEDS_UPDATE,     // File exists but hash mismatch (needs update)
@@ -417,7 +809,7 @@ public class FileDownloader {
     /**
      * File status information
      */
-    private static class FileStatus {
+    public static class FileStatus {
         public final FileStatusType type;
         public final Path existingFile;
         
@@ -430,7 +822,8 @@ public class FileDownloader {
     /**
      * Check file status based on filename and hash verification
      */
-    private static FileStatus checkFileStatus(Path targetDir, String targetFileName, String friendlyName, String expectedHash) {
+    private static FileStatus checkFileStatus(Path targetDir, String targetFileName, String friendlyName,
+                                              String expectedHash, DigestAlgorithm algorithm) {
         try {
             if (expectedHash == null || expectedHash.trim().isEmpty()) {
                 // No hash provided, use simple file existence check
@@ -443,8 +836,14 @@ public class FileDownloader {
             
             // Check if target file exists and has correct hash
             Path targetFile = targetDir.resolve(targetFileName);
+            if (algorithm == null) {
+                // The manifest names an algorithm we cannot verify with; never trust the local copy
+                return Files.exists(targetFile)
+                    ? new FileStatus(FileStatusType.FILE_NEEDS_UPDATE, targetFile)
+                    : new FileStatus(FileStatusType.FILE_NOT_FOUND, null);
+            }
             if (Files.exists(targetFile)) {
-                String actualHash = calculateFileHash(targetFile);
+                String actualHash = HashIndex.getInstance().getDigest(targetFile, algorithm);
                 if (expectedHash.equalsIgnoreCase(actualHash)) {
                     return new FileStatus(FileStatusType.FILE_UP_TO_DATE, targetFile);
                 } else {
@@ -453,71 +852,40 @@ public class FileDownloader {
             }
             
             // Check if any other file in the directory has the matching hash
-            if (Files.exists(targetDir) && Files.isDirectory(targetDir)) {
-                try {
-                    Path matchingFile = Files.list(targetDir)
-                        .filter(Files::isRegularFile)
-                        .filter(file -> {
-                            try {
-                                String fileHash = calculateFileHash(file);
-                                return expectedHash.equalsIgnoreCase(fileHash);
-                            } catch (Exception e) {
-                                return false;
-                            }
-                        })
-                        .findFirst()
-                        .orElse(null);
-                        
-                    if (matchingFile != null) {
-                        return new FileStatus(FileStatusType.FILE_NEEDS_RENAME, matchingFile);
-                    }
-                } catch (Exception e) {
-                    System.err.println("Error scanning directory for hash matches: " + e.getMessage());
-                }
+            Path matchingFile = DirectoryInventory.of(targetDir).findByDigest(algorithm, expectedHash);
+            if (matchingFile != null) {
+                return new FileStatus(FileStatusType.FILE_NEEDS_RENAME, matchingFile);
             }
             
             return new FileStatus(FileStatusType.FILE_NOT_FOUND, null);
             
         } catch (Exception e) {
-            System.err.println("Error checking file status: " + e.getMessage());
+            SyncLog.error("Error checking file status: " + e.getMessage());
             return new FileStatus(FileStatusType.FILE_NOT_FOUND, null);
         }
     }
     
     /**
-     * Calculate MD5 hash of a file
+     * Convert digest bytes to a lowercase hex string
      */
-    private static String calculateFileHash(Path file) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("MD5");
-            
-            try (FileInputStream fis = new FileInputStream(file.toFile());
-                 BufferedInputStream bis = new BufferedInputStream(fis)) {
-                
-                byte[] buffer = new byte[BUFFER_SIZE];
-                int bytesRead;
-                
-                while ((bytesRead = bis.read(buffer)) != -1) {
-                    digest.update(buffer, 0, bytesRead);
-                }
-            }
-            
-            byte[] hashBytes = digest.digest();
-            StringBuilder hexString = new StringBuilder();
-            
-            for (byte b : hashBytes) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) {
-                    hexString.append('0');
-                }
-                hexString.append(hex);
+    static String toHex(byte[] hashBytes) {
+        StringBuilder hexString = new StringBuilder();
+        
+        for (byte b : hashBytes) {
+            String hex = Integer.toHexString(0xff & b);
+            if (hex.length() == 1) {
+                hexString.append('0');
             }
-            
-            return hexString.toString();
-            
-        } catch (Exception e) {
-            System.err.println("Error calculating file hash: " + e.getMessage());
-            return null;
+            hexString.append(hex);
         }
+        
+        return hexString.toString();
+    }
+    
+    /**
+     * Total bytes whose verification re-read was avoided by in-stream hashing this session
+     */
+    public static long getRehashBytesAvoided() {
+        return rehashBytesAvoided.get();
     }
 }
\ No newline at end of file
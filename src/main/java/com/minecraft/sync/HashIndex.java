@@ -0,0 +1,298 @@
+package com.minecraft.sync;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent local hash index.
+ * Maps (path, size, lastModified, fileKey) to content digests so files are only
+ * re-hashed when their metadata changes. Every full hash also records a fast XXH64
+ * fingerprint; when only the timestamp changed, that fingerprint confirms the content is
+ * the same without recomputing a cryptographic digest. Stored under the sync root in .mcsync/.
+ */
+public class HashIndex {
+
+    private static final String INDEX_DIR = ".mcsync";
+    private static final String INDEX_FILE = "hash-index.json";
+    private static final Gson gson = new GsonBuilder().create();
+
+    private static volatile HashIndex instance;
+
+    private final Path rootDir;
+    private final Path indexFile;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private volatile boolean dirty = false;
+    private volatile boolean readOnly = false;
+
+    /**
+     * Cached metadata and digests for one file. Entries are replaced, never modified,
+     * so concurrent readers always see a consistent snapshot.
+     */
+    private static class Entry {
+        long size;
+        long lastModified;
+        String fileKey;
+        // Lowercase hex digest per DigestAlgorithm tag
+        Map<String, String> digests;
+        // Index files written before digests were keyed by algorithm; migrated on load
+        String md5;
+
+        Entry(BasicFileAttributes attrs, Map<String, String> digests) {
+            this.size = attrs.size();
+            this.lastModified = attrs.lastModifiedTime().toMillis();
+            this.fileKey = fileKeyOf(attrs);
+            this.digests = digests;
+        }
+
+        boolean matches(BasicFileAttributes attrs) {
+            return size == attrs.size()
+                && lastModified == attrs.lastModifiedTime().toMillis()
+                && Objects.equals(fileKey, fileKeyOf(attrs));
+        }
+
+        String digest(DigestAlgorithm algorithm) {
+            return digests != null ? digests.get(algorithm.getTag()) : null;
+        }
+
+        /**
+         * Same content, new metadata and possibly more digests
+         */
+        Entry with(BasicFileAttributes attrs, Map<DigestAlgorithm, String> added) {
+            return of(attrs, digests, added);
+        }
+
+        static Entry of(BasicFileAttributes attrs, Map<String, String> known, Map<DigestAlgorithm, String> added) {
+            Map<String, String> merged = known != null ? new HashMap<>(known) : new HashMap<>();
+            added.forEach((algorithm, digest) -> merged.put(algorithm.getTag(), digest));
+            return new Entry(attrs, merged);
+        }
+    }
+
+    /**
+     * Get the shared index for the sync root, loading it from disk on first use
+     */
+    public static HashIndex getInstance() {
+        if (instance == null) {
+            synchronized (HashIndex.class) {
+                if (instance == null) {
+                    HashIndex index = new HashIndex(FileDownloader.getBaseDir());
+                    index.load();
+                    Runtime.getRuntime().addShutdownHook(new Thread(index::save, "hash-index-save"));
+                    instance = index;
+                }
+            }
+        }
+        return instance;
+    }
+
+    private HashIndex(Path rootDir) {
+        this.rootDir = rootDir.toAbsolutePath().normalize();
+        this.indexFile = this.rootDir.resolve(INDEX_DIR).resolve(INDEX_FILE);
+    }
+
+    /**
+     * Get a digest of a file, hashing it only if it is not indexed or its content may have changed
+     * @return lowercase hex digest, or null if the file cannot be read
+     */
+    public String getDigest(Path file, DigestAlgorithm algorithm) {
+        String key = keyOf(file);
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (Exception e) {
+            if (entries.remove(key) != null) {
+                dirty = true;
+            }
+            return null;
+        }
+
+        Entry entry = entries.get(key);
+        boolean contentKnown = entry != null && entry.matches(attrs);
+        if (contentKnown) {
+            String cached = entry.digest(algorithm);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        } else if (entry != null && entry.size == attrs.size() && entry.digest(algorithm) != null
+                && algorithm != DigestAlgorithm.XXH64) {
+            // Touched but same size (copied, restored, re-extracted): check the cheap fingerprint first
+            String fingerprint = entry.digest(DigestAlgorithm.XXH64);
+            if (fingerprint != null && fingerprint.equals(DigestAlgorithm.XXH64.hashFile(file)) && unchanged(file, attrs)) {
+                revalidations.incrementAndGet();
+                entries.put(key, entry.with(attrs, new EnumMap<>(DigestAlgorithm.class)));
+                dirty = true;
+                return entry.digest(algorithm);
+            }
+        }
+
+        misses.incrementAndGet();
+        Map<DigestAlgorithm, String> computed = DigestAlgorithm.hashFile(file, EnumSet.of(algorithm, DigestAlgorithm.XXH64));
+        if (computed == null) {
+            return null;
+        }
+
+        // Only cache if the file did not change while it was being hashed
+        if (unchanged(file, attrs)) {
+            entries.put(key, Entry.of(attrs, contentKnown ? entry.digests : null, computed));
+            dirty = true;
+        }
+        return computed.get(algorithm);
+    }
+
+    private static boolean unchanged(Path file, BasicFileAttributes attrs) {
+        try {
+            BasicFileAttributes after = Files.readAttributes(file, BasicFileAttributes.class);
+            return after.size() == attrs.size() && after.lastModifiedTime().equals(attrs.lastModifiedTime());
+        } catch (Exception e) {
+            // File vanished after hashing; nothing to cache
+            return false;
+        }
+    }
+
+    /**
+     * Record a digest that is already known (e.g. computed while downloading)
+     */
+    public void record(Path file, DigestAlgorithm algorithm, String digest) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            Map<String, String> digests = new HashMap<>();
+            digests.put(algorithm.getTag(), digest.toLowerCase());
+            entries.put(keyOf(file), new Entry(attrs, digests));
+            dirty = true;
+        } catch (Exception e) {
+            SyncLog.error("Failed to index file " + file.getFileName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Record several digests computed together in one pass over the file
+     */
+    public void record(Path file, Map<DigestAlgorithm, String> digests) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            entries.put(keyOf(file), Entry.of(attrs, null, digests));
+            dirty = true;
+        } catch (Exception e) {
+            SyncLog.error("Failed to index file " + file.getFileName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Drop the cached digest for a file that was moved or deleted
+     */
+    public void remove(Path file) {
+        if (entries.remove(keyOf(file)) != null) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Keep lookups in memory only; save() becomes a no-op (used by plan mode)
+     */
+    public void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Lookups whose metadata changed but whose content was confirmed by the fast fingerprint
+     */
+    public long getRevalidatedCount() {
+        return revalidations.get();
+    }
+
+    /**
+     * Write the index to disk if it changed since the last save
+     */
+    public synchronized void save() {
+        if (!dirty || readOnly) {
+            return;
+        }
+        dirty = false;
+
+        try {
+            Files.createDirectories(indexFile.getParent());
+            Path tempFile = indexFile.resolveSibling(INDEX_FILE + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                gson.toJson(entries, writer);
+            }
+            Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            dirty = true;
+            SyncLog.error("Failed to save hash index: " + e.getMessage());
+        }
+    }
+
+    private void load() {
+        if (!Files.exists(indexFile)) {
+            return;
+        }
+
+        try (Reader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+            Type type = new TypeToken<Map<String, Entry>>() {}.getType();
+            Map<String, Entry> loaded = gson.fromJson(reader, type);
+            if (loaded != null) {
+                loaded.forEach((key, entry) -> {
+                    if (key == null || entry == null) {
+                        return;
+                    }
+                    if (entry.digests == null && entry.md5 != null) {
+                        entry.digests = new HashMap<>();
+                        entry.digests.put(DigestAlgorithm.MD5.getTag(), entry.md5);
+                    }
+                    entry.md5 = null;
+                    if (entry.digests != null && !entry.digests.isEmpty()) {
+                        entries.put(key, entry);
+                    }
+                });
+            }
+        } catch (Exception e) {
+            // A corrupt index is only a cache; start over
+            SyncLog.error("Ignoring unreadable hash index: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Index key: path relative to the sync root when possible, absolute otherwise
+     */
+    private String keyOf(Path file) {
+        Path absolute = file.toAbsolutePath().normalize();
+        if (absolute.startsWith(rootDir)) {
+            return rootDir.relativize(absolute).toString().replace('\\', '/');
+        }
+        return absolute.toString();
+    }
+
+    private static String fileKeyOf(BasicFileAttributes attrs) {
+        Object fileKey = attrs.fileKey();
+        return fileKey != null ? fileKey.toString() : null;
+    }
+}
@@ -1,45 +1,115 @@
 package com.minecraft.sync;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class HttpClient {
-    private static final int TIMEOUT = 10000; // 10 seconds timeout
+
+    /**
+     * Consumes a response body while it is still arriving
+     */
+    public interface BodyHandler<T> {
+        T handle(InputStream body) throws IOException;
+    }
 
     public static String get(String urlString) throws IOException {
-        HttpURLConnection connection = null;
-        try {
-            URL url = new URL(urlString);
-            connection = (HttpURLConnection) url.openConnection();
-            
-            connection.setRequestMethod("GET");
-            connection.setConnectTimeout(TIMEOUT);
-            connection.setReadTimeout(TIMEOUT);
-            connection.setRequestProperty("User-Agent", "minecraftResSync/1.0");
-            connection.setRequestProperty("Accept", "application/json");
-
-            int responseCode = connection.getResponseCode();
-            if (responseCode == HttpURLConnection.HTTP_OK) {
-                try (BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
-                    StringBuilder response = new StringBuilder();
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        response.append(line);
-                    }
-                    return response.toString();
-                }
-            } else {
-                throw new IOException("HTTP request failed with status code: " + responseCode);
+        return get(urlString, body -> new String(readAll(body), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * GET a JSON resource and hand the body stream to the handler without buffering it first
+     */
+    public static <T> T get(String urlString, BodyHandler<T> handler) throws IOException {
+        try (HttpTransport.Response response = open(urlString, Collections.singletonMap("Accept", "application/json"))) {
+            return handler.handle(response.getBody());
+        }
+    }
+
+    /**
+     * Outcome of a conditional GET
+     */
+    public static class ConditionalResult<T> {
+        private final boolean notModified;
+        private final T value;
+        private final String etag;
+        private final String lastModified;
+
+        ConditionalResult(boolean notModified, T value, String etag, String lastModified) {
+            this.notModified = notModified;
+            this.value = value;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        /** True if the server answered 304 and the caller's copy is still current */
+        public boolean isNotModified() { return notModified; }
+        public T getValue() { return value; }
+        public String getEtag() { return etag; }
+        public String getLastModified() { return lastModified; }
+    }
+
+    /**
+     * GET a JSON resource only if it changed since the given validators were issued.
+     * The handler is only invoked for a 200 response.
+     * @param etag previous ETag, sent as If-None-Match, may be null
+     * @param lastModified previous Last-Modified, sent as If-Modified-Since, may be null
+     */
+    public static <T> ConditionalResult<T> getIfModified(String urlString, String etag, String lastModified,
+                                                         BodyHandler<T> handler) throws IOException {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Accept", "application/json");
+        if (etag != null) {
+            headers.put("If-None-Match", etag);
+        }
+        if (lastModified != null) {
+            headers.put("If-Modified-Since", lastModified);
+        }
+
+        try (HttpTransport.Response response = open(urlString, headers, 304)) {
+            if (response.getStatusCode() == 304) {
+                return new ConditionalResult<>(true, null, etag, lastModified);
             }
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
+            T value = handler.handle(response.getBody());
+            return new ConditionalResult<>(false, value, response.getHeader("ETag"), response.getHeader("Last-Modified"));
+        }
+    }
+
+    /**
+     * Send a GET under the shared RetryPolicy until it gets a 200 or one of the accepted statuses.
+     * Only getting the response is retried; once the handler starts consuming a streamed body,
+     * a failure is passed to the caller rather than replaying the body.
+     */
+    private static HttpTransport.Response open(String urlString, Map<String, String> headers,
+                                               int... acceptedStatuses) throws IOException {
+        return RetryPolicy.getInstance().execute(urlString, urlString, () -> {
+            HttpTransport.Response response = HttpTransport.getInstance().get(urlString, headers);
+            int responseCode = response.getStatusCode();
+            if (responseCode == 200) {
+                return response;
+            }
+            for (int accepted : acceptedStatuses) {
+                if (responseCode == accepted) {
+                    return response;
+                }
             }
+            HttpStatusException failure = HttpStatusException.of("HTTP request failed with status code: " + responseCode, response);
+            response.close();
+            throw failure;
+        });
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int bytesRead;
+        while ((bytesRead = in.read(buffer)) != -1) {
+            out.write(buffer, 0, bytesRead);
         }
+        return out.toByteArray();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,40 @@
+package com.minecraft.sync;
+
+import java.io.IOException;
+
+/**
+ * A request that got an HTTP response other than the one the caller needs.
+ * Carries the status and any Retry-After header so RetryPolicy can decide whether and
+ * when to try again.
+ */
+class HttpStatusException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+    private final String retryAfter;
+
+    HttpStatusException(String message, int statusCode, String retryAfter) {
+        super(message);
+        this.statusCode = statusCode;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Build from a response; the caller still closes it
+     */
+    static HttpStatusException of(String message, HttpTransport.Response response) {
+        return new HttpStatusException(message, response.getStatusCode(), response.getHeader("Retry-After"));
+    }
+
+    int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Raw Retry-After header value, or null
+     */
+    String getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,355 @@
+package com.minecraft.sync;
+
+import javax.net.ssl.SSLSession;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared, pooled HTTP transport built on java.net.http.HttpClient.
+ * One client instance means keep-alive connections and HTTP/2 multiplexing are reused
+ * across the manifest fetch, file downloads and the update check, instead of paying a
+ * TLS handshake per request. Concurrent exchanges per host are capped by a semaphore.
+ */
+public class HttpTransport {
+
+    public static final String USER_AGENT = "MinecraftResSyncTool/1.0";
+
+    private static final int CONNECT_TIMEOUT = 10000; // 10 seconds
+    private static final int DEFAULT_READ_TIMEOUT = 30000; // 30 seconds
+    private static final int MAX_PER_HOST = Integer.getInteger("mcsync.http.maxPerHost", 8);
+
+    private static final HttpTransport instance = new HttpTransport(MAX_PER_HOST);
+
+    private final java.net.http.HttpClient client;
+    private final int maxPerHost;
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+    private final Map<String, HostStats> hostStats = new ConcurrentHashMap<>();
+    private final Set<GuardedInputStream> activeBodies = ConcurrentHashMap.newKeySet();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final ScheduledExecutorService watchdog;
+
+    /**
+     * Per-host request and connection counters
+     */
+    public static class HostStats {
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong http2Requests = new AtomicLong();
+        private final Set<String> tlsSessions = ConcurrentHashMap.newKeySet();
+
+        public long getRequests() { return requests.get(); }
+        public long getHttp2Requests() { return http2Requests.get(); }
+
+        /**
+         * Number of distinct TLS sessions seen, i.e. full handshakes; 0 for plain HTTP
+         */
+        public long getTlsHandshakes() { return tlsSessions.size(); }
+
+        /**
+         * Requests that were served over an already established TLS connection
+         */
+        public long getReusedRequests() {
+            return tlsSessions.isEmpty() ? 0 : Math.max(0, requests.get() - tlsSessions.size());
+        }
+    }
+
+    /**
+     * A response whose body must be closed to return the connection and host permit
+     */
+    public static class Response implements Closeable {
+        private final HttpResponse<InputStream> response;
+        private final InputStream body;
+        private final Runnable onClose;
+        private boolean closed = false;
+
+        private Response(HttpResponse<InputStream> response, InputStream body, Runnable onClose) {
+            this.response = response;
+            this.body = body;
+            this.onClose = onClose;
+        }
+
+        public int getStatusCode() {
+            return response.statusCode();
+        }
+
+        public String getHeader(String name) {
+            return response.headers().firstValue(name).orElse(null);
+        }
+
+        /**
+         * Content-Length of this response, or -1 if unknown
+         */
+        public long getContentLength() {
+            return response.headers().firstValueAsLong("Content-Length").orElse(-1L);
+        }
+
+        public InputStream getBody() {
+            return body;
+        }
+
+        public String getProtocol() {
+            return response.version() == java.net.http.HttpClient.Version.HTTP_2 ? "HTTP/2" : "HTTP/1.1";
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                body.close();
+            } catch (IOException e) {
+                // Closing only returns the connection to the pool
+            } finally {
+                onClose.run();
+            }
+        }
+    }
+
+    public static HttpTransport getInstance() {
+        return instance;
+    }
+
+    private HttpTransport(int maxPerHost) {
+        this.maxPerHost = Math.max(1, maxPerHost);
+        this.client = java.net.http.HttpClient.newBuilder()
+            .version(java.net.http.HttpClient.Version.HTTP_2)
+            .followRedirects(java.net.http.HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofMillis(CONNECT_TIMEOUT))
+            .build();
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "http-read-timeout-watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+        this.watchdog.scheduleWithFixedDelay(this::closeStalledBodies, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Send a GET request; the caller must close the returned response
+     */
+    public Response get(String url, Map<String, String> headers) throws IOException {
+        return send("GET", url, headers, DEFAULT_READ_TIMEOUT);
+    }
+
+    /**
+     * Send a HEAD request; the caller must close the returned response
+     */
+    public Response head(String url, Map<String, String> headers) throws IOException {
+        return send("HEAD", url, headers, DEFAULT_READ_TIMEOUT);
+    }
+
+    /**
+     * Send a request over the shared client
+     * @param readTimeoutMillis maximum time to wait for headers and between body reads
+     */
+    public Response send(String method, String url, Map<String, String> headers, int readTimeoutMillis) throws IOException {
+        URI uri;
+        try {
+            uri = URI.create(url.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid URL: " + url, e);
+        }
+        String host = uri.getHost() != null ? uri.getHost().toLowerCase() : "";
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+            .timeout(Duration.ofMillis(readTimeoutMillis))
+            .header("User-Agent", USER_AGENT)
+            .method(method, HttpRequest.BodyPublishers.noBody());
+        if (headers != null) {
+            headers.forEach(builder::header);
+        }
+
+        Semaphore permits = hostPermits.computeIfAbsent(host, h -> new Semaphore(maxPerHost));
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for connection to " + host);
+        }
+
+        HttpResponse<InputStream> response;
+        try {
+            response = client.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (java.net.http.HttpTimeoutException e) {
+            permits.release();
+            throw new SocketTimeoutException("Timed out waiting for " + host + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            permits.release();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted during request to " + host);
+        } catch (IOException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+
+        recordStats(host, response);
+
+        GuardedInputStream body = new GuardedInputStream(response.body(), readTimeoutMillis, bytesReceived);
+        activeBodies.add(body);
+        return new Response(response, body, () -> {
+            activeBodies.remove(body);
+            permits.release();
+        });
+    }
+
+    private void recordStats(String host, HttpResponse<?> response) {
+        HostStats stats = hostStats.computeIfAbsent(host, h -> new HostStats());
+        stats.requests.incrementAndGet();
+        if (response.version() == java.net.http.HttpClient.Version.HTTP_2) {
+            stats.http2Requests.incrementAndGet();
+        }
+        response.sslSession().ifPresent(session -> stats.tlsSessions.add(sessionKey(session)));
+    }
+
+    /**
+     * Each TLS connection has its own session id; requests sharing an id reused the connection
+     */
+    private static String sessionKey(SSLSession session) {
+        return FileDownloader.toHex(session.getId()) + "@" + session.getCreationTime();
+    }
+
+    /**
+     * Requests allowed against one host at once; further requests wait for a permit
+     */
+    public int getMaxPerHost() {
+        return maxPerHost;
+    }
+
+    /**
+     * Total response body bytes read through this transport
+     */
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    /**
+     * Snapshot of per-host counters, sorted by host
+     */
+    public Map<String, HostStats> getStats() {
+        return Collections.unmodifiableMap(new TreeMap<>(hostStats));
+    }
+
+    /**
+     * One line per host: requests, TLS handshakes and reused requests
+     */
+    public String describeStats() {
+        StringBuilder sb = new StringBuilder();
+        getStats().forEach((host, stats) -> {
+            sb.append(String.format("  %s: %d requests, %d TLS handshakes, %d reused, %d over HTTP/2%n",
+                host.isEmpty() ? "(unknown)" : host, stats.getRequests(), stats.getTlsHandshakes(),
+                stats.getReusedRequests(), stats.getHttp2Requests()));
+        });
+        return sb.toString();
+    }
+
+    /**
+     * java.net.http has no per-read timeout, so a watchdog closes bodies that stop delivering data
+     */
+    private void closeStalledBodies() {
+        long now = System.currentTimeMillis();
+        for (GuardedInputStream body : activeBodies) {
+            if (body.isStalled(now)) {
+                body.abortStalled();
+                activeBodies.remove(body);
+            }
+        }
+    }
+
+    /**
+     * Body stream that records read activity for the stall watchdog
+     */
+    private static class GuardedInputStream extends FilterInputStream {
+        private final int readTimeoutMillis;
+        private final AtomicLong bytesReceived;
+        private volatile long lastActivity = System.currentTimeMillis();
+        private volatile boolean reading = false;
+        private volatile boolean timedOut = false;
+
+        GuardedInputStream(InputStream in, int readTimeoutMillis, AtomicLong bytesReceived) {
+            super(in);
+            this.readTimeoutMillis = readTimeoutMillis;
+            this.bytesReceived = bytesReceived;
+        }
+
+        boolean isStalled(long now) {
+            return reading && now - lastActivity > readTimeoutMillis;
+        }
+
+        void abortStalled() {
+            timedOut = true;
+            try {
+                in.close();
+            } catch (IOException e) {
+                // The blocked reader sees the timeout below
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            beginRead();
+            try {
+                int b = in.read();
+                if (b != -1) {
+                    bytesReceived.incrementAndGet();
+                }
+                return b;
+            } catch (IOException e) {
+                throw translate(e);
+            } finally {
+                endRead();
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            beginRead();
+            try {
+                int n = in.read(b, off, len);
+                if (n > 0) {
+                    bytesReceived.addAndGet(n);
+                }
+                return n;
+            } catch (IOException e) {
+                throw translate(e);
+            } finally {
+                endRead();
+            }
+        }
+
+        private void beginRead() throws IOException {
+            if (timedOut) {
+                throw new SocketTimeoutException("Read timed out");
+            }
+            lastActivity = System.currentTimeMillis();
+            reading = true;
+        }
+
+        private void endRead() {
+            reading = false;
+            lastActivity = System.currentTimeMillis();
+        }
+
+        private IOException translate(IOException e) {
+            return timedOut ? new SocketTimeoutException("Read timed out") : e;
+        }
+    }
+}
@@ -2,11 +2,17 @@ package com.minecraft.sync;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
 
 public class JsonParser {
     private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
@@ -34,6 +40,57 @@ public class JsonParser {
         }
     }
 
+    /**
+     * Parse a modlist file incrementally, handing each entry to onItem as it is read
+     */
+    public static ModListResponse parseModListFromFile(String filePath, Consumer<ModInfo> onItem) {
+        try (FileInputStream fis = new FileInputStream(filePath)) {
+            return parseModListFromStream(fis, onItem);
+        } catch (IOException e) {
+            System.err.println("Error reading file: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Parse a modlist incrementally from a stream.
+     * Each entry of data[] is bound and handed to onItem as soon as it has been read,
+     * so callers can start work before the rest of the document has arrived.
+     * @param onItem receives each entry in document order, may be null
+     * @return the complete response once the stream is exhausted
+     */
+    public static ModListResponse parseModListFromStream(InputStream in, Consumer<ModInfo> onItem) throws IOException {
+        List<ModInfo> items = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!"data".equals(reader.nextName()) || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    ModInfo item = gson.fromJson(reader, ModInfo.class);
+                    if (item == null) {
+                        continue;
+                    }
+                    items.add(item);
+                    if (onItem != null) {
+                        onItem.accept(item);
+                    }
+                }
+                reader.endArray();
+            }
+            reader.endObject();
+        } catch (IllegalStateException | com.google.gson.JsonParseException e) {
+            throw new IOException("Malformed modlist: " + e.getMessage(), e);
+        }
+
+        ModListResponse response = new ModListResponse();
+        response.setData(items);
+        return response;
+    }
+
     public static String toJson(ModListResponse response) {
         return gson.toJson(response);
     }
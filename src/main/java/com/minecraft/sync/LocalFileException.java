@@ -0,0 +1,17 @@
+package com.minecraft.sync;
+
+import java.io.IOException;
+
+/**
+ * A download failed on the local side, e.g. a full disk or a file locked by a running game,
+ * rather than on the network. Asking the server again cannot fix it, so RetryPolicy neither
+ * retries it nor counts it against the host's circuit breaker.
+ */
+class LocalFileException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    LocalFileException(String message, IOException cause) {
+        super(message + ": " + (cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName()), cause);
+    }
+}
@@ -0,0 +1,214 @@
+package com.minecraft.sync;
+
+import com.google.gson.Gson;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.function.Consumer;
+
+/**
+ * Local snapshot of the last good manifest for each API URL.
+ * Fetches are conditional on the stored ETag/Last-Modified, so an unchanged manifest
+ * costs one 304 round-trip and is parsed from disk. If the API is unreachable the
+ * snapshot is used as the offline fallback.
+ */
+public class ManifestCache {
+
+    private static final String CACHE_DIR = ".mcsync";
+    private static final String MANIFEST_DIR = "manifests";
+    private static final String FALLBACK_FILE = "modlist.json";
+    private static final Gson gson = new Gson();
+
+    /**
+     * Where a loaded manifest came from
+     */
+    public enum Source {
+        FETCHED,        // Downloaded in full; snapshot updated unless loaded read-only
+        NOT_MODIFIED,   // Server answered 304; snapshot reused
+        CACHED,         // API unreachable; last snapshot used
+        LOCAL_FILE      // No snapshot; modlist.json in the working directory used
+    }
+
+    /**
+     * A loaded manifest and its origin
+     */
+    public static class Result {
+        private final ModListResponse response;
+        private final Source source;
+
+        Result(ModListResponse response, Source source) {
+            this.response = response;
+            this.source = source;
+        }
+
+        public ModListResponse getResponse() { return response; }
+        public Source getSource() { return source; }
+    }
+
+    /**
+     * Validators stored next to a snapshot
+     */
+    private static class Meta {
+        String url;
+        String etag;
+        String lastModified;
+        long fetchedAt;
+    }
+
+    /**
+     * Load the manifest for an API URL, revalidating the local snapshot if there is one
+     * @param onItem receives each entry as it is parsed, may be null
+     * @throws IOException if neither the API, the snapshot nor the local file yields a manifest
+     */
+    public static Result load(String apiUrl, Consumer<ModInfo> onItem) throws IOException {
+        return load(apiUrl, onItem, false);
+    }
+
+    /**
+     * Load the manifest for an API URL
+     * @param readOnly use the snapshot and its validators but never write them, e.g. for a dry run
+     */
+    public static Result load(String apiUrl, Consumer<ModInfo> onItem, boolean readOnly) throws IOException {
+        return load(apiUrl, onItem, readOnly, true);
+    }
+
+    private static Result load(String apiUrl, Consumer<ModInfo> onItem, boolean readOnly, boolean conditional) throws IOException {
+        Path snapshotFile = snapshotFileFor(apiUrl);
+        Path metaFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".meta");
+        Meta meta = conditional && Files.exists(snapshotFile) ? readMeta(metaFile, apiUrl) : null;
+
+        try {
+            Path tempFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+            HttpClient.ConditionalResult<ModListResponse> result = HttpClient.getIfModified(apiUrl,
+                meta != null ? meta.etag : null, meta != null ? meta.lastModified : null,
+                body -> readOnly ? JsonParser.parseModListFromStream(body, onItem) : parseAndStore(body, tempFile, onItem));
+
+            if (result.isNotModified()) {
+                ModListResponse cached = JsonParser.parseModListFromFile(snapshotFile.toString(), onItem);
+                if (cached != null && cached.getData() != null) {
+                    return new Result(cached, Source.NOT_MODIFIED);
+                }
+                // Snapshot unreadable despite the 304; fetch unconditionally
+                if (!readOnly) {
+                    Files.deleteIfExists(metaFile);
+                }
+                return load(apiUrl, onItem, readOnly, false);
+            }
+
+            if (!readOnly) {
+                Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                writeMeta(metaFile, apiUrl, result.getEtag(), result.getLastModified());
+            }
+            return new Result(result.getValue(), Source.FETCHED);
+        } catch (IOException e) {
+            SyncLog.error("Manifest fetch failed: " + (e.getMessage() != null ? e.getMessage() : e.toString()));
+        }
+
+        if (Files.exists(snapshotFile)) {
+            ModListResponse cached = JsonParser.parseModListFromFile(snapshotFile.toString(), onItem);
+            if (cached != null && cached.getData() != null) {
+                return new Result(cached, Source.CACHED);
+            }
+        }
+
+        Path localFile = FileDownloader.getBaseDir().resolve(FALLBACK_FILE);
+        if (Files.exists(localFile)) {
+            ModListResponse local = JsonParser.parseModListFromFile(localFile.toString(), onItem);
+            if (local != null && local.getData() != null) {
+                return new Result(local, Source.LOCAL_FILE);
+            }
+        }
+
+        throw new IOException("No manifest available from " + apiUrl + ", the local snapshot or " + FALLBACK_FILE);
+    }
+
+    /**
+     * Parse the response while copying it to a temporary file, so the snapshot is
+     * written without buffering the body and only replaced once it parsed cleanly
+     */
+    private static ModListResponse parseAndStore(InputStream body, Path tempFile, Consumer<ModInfo> onItem) throws IOException {
+        Files.createDirectories(tempFile.getParent());
+        try (OutputStream out = Files.newOutputStream(tempFile)) {
+            return JsonParser.parseModListFromStream(new TeeInputStream(body, out), onItem);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+    }
+
+    private static Path snapshotFileFor(String apiUrl) {
+        String name;
+        try {
+            MessageDigest md = MessageDigest.getInstance("MD5");
+            name = FileDownloader.toHex(md.digest(apiUrl.trim().getBytes(StandardCharsets.UTF_8)));
+        } catch (java.security.NoSuchAlgorithmException e) {
+            name = Integer.toHexString(apiUrl.trim().hashCode());
+        }
+        return FileDownloader.getBaseDir().resolve(CACHE_DIR).resolve(MANIFEST_DIR).resolve(name + ".json");
+    }
+
+    private static Meta readMeta(Path metaFile, String apiUrl) {
+        if (!Files.exists(metaFile)) {
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(metaFile, StandardCharsets.UTF_8)) {
+            Meta meta = gson.fromJson(reader, Meta.class);
+            return meta != null && apiUrl.trim().equals(meta.url) ? meta : null;
+        } catch (Exception e) {
+            SyncLog.error("Ignoring unreadable manifest cache state: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeMeta(Path metaFile, String apiUrl, String etag, String lastModified) {
+        Meta meta = new Meta();
+        meta.url = apiUrl.trim();
+        meta.etag = etag;
+        meta.lastModified = lastModified;
+        meta.fetchedAt = System.currentTimeMillis();
+        try (Writer writer = Files.newBufferedWriter(metaFile, StandardCharsets.UTF_8)) {
+            gson.toJson(meta, writer);
+        } catch (Exception e) {
+            SyncLog.error("Failed to save manifest cache state: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Copies everything read from the source to a second stream
+     */
+    private static class TeeInputStream extends FilterInputStream {
+        private final OutputStream copy;
+
+        TeeInputStream(InputStream in, OutputStream copy) {
+            super(in);
+            this.copy = copy;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b != -1) {
+                copy.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                copy.write(b, off, n);
+            }
+            return n;
+        }
+    }
+}
@@ -4,19 +4,22 @@ import com.formdev.flatlaf.FlatLightLaf;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
+import javax.swing.text.BadLocationException;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.BufferedInputStream;
-import java.io.FileInputStream;
-import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public class MinecraftResSyncGUI extends JFrame {
@@ -34,6 +37,8 @@ public class MinecraftResSyncGUI extends JFrame {
     private JTextArea logArea;
     private JLabel statusLabel;
     private JCheckBox autoDownloadCheckbox;
+    private JSpinner rateLimitSpinner;
+    private JCheckBox adaptiveConcurrencyCheckbox;
     
     // Stats display components
     private JLabel totalItemsLabel;
@@ -48,44 +53,25 @@ public class MinecraftResSyncGUI extends JFrame {
     private ModListResponse currentResponse;
     private String initialApiUrl;
     
-    // Workflow stages
-    private enum WorkflowStage {
-        FETCH_DATA("获取数据", 0),
-        DOWNLOAD_PREREQUISITE_MODS("下载必备前置mod", 1),
-        DOWNLOAD_CONFIGS("下载自定义配置", 2), 
-        DOWNLOAD_REQUIRED_MODS("下载必备mod", 3),
-        SELECT_OPTIONAL_MODS("选择并下载可选mod", 4),
-        DOWNLOAD_RESOURCE_PACKS("下载资源包", 5),
-        DOWNLOAD_SHADERS("下载光影", 6),
-        COMPLETED("完成", 7);
-        
-        private final String description;
-        private final int stepIndex;
-        
-        WorkflowStage(String description, int stepIndex) {
-            this.description = description;
-            this.stepIndex = stepIndex;
-        }
-        
-        public String getDescription() { return description; }
-        public int getStepIndex() { return stepIndex; }
-        public static int getTotalSteps() { return values().length; }
-    }
+    // Status column is filled in asynchronously; stale results from an older fetch are dropped
+    private static final String STATUS_CHECKING = "⏳ 检查中…";
+    private static final int STATUS_COLUMN = 4;
+    // Download progress is redrawn five times a second however often the workers report
+    private static final int PROGRESS_REFRESH_MILLIS = 200;
+    private static final int PROGRESS_BAR_SCALE = 1000;
+    // Older lines are dropped from the log view; the full log can go to -Dmcsync.log.file
+    private static final int MAX_LOG_LINES = 2000;
+    private volatile int tableGeneration = 0;
     
-    private WorkflowStage currentStage = WorkflowStage.FETCH_DATA;
+    // Prerequisite libs are queued while the manifest is still streaming in
+    private volatile DownloadScheduler earlyPrerequisiteScheduler;
+    private final Set<String> earlySubmittedKeys = ConcurrentHashMap.newKeySet();
     
-    // Platform-dependent fallback path for modlist.json
-    private static String getLocalModlistPath() {
-        String os = System.getProperty("os.name").toLowerCase();
-        if (os.contains("win")) {
-            // Windows fallback - current directory or user home
-            String currentDir = System.getProperty("user.dir");
-            return currentDir + "\\modlist.json";
-        } else {
-            // macOS/Linux fallback
-            return "/Users/galentwww/IdeaProjects/minecraftResSync/modlist.json";
-        }
-    }
+    // Download stages of the running workflow; independent stages overlap on one shared pool
+    private DownloadPool workflowPool;
+    private StageExecutor stageExecutor;
+    private final Map<SyncStage, DownloadScheduler> activeDownloads = new EnumMap<>(SyncStage.class);
+    private Timer progressTimer;
     
     /**
      * Get UI font with Chinese character support for cross-platform compatibility
@@ -171,6 +157,18 @@ public class MinecraftResSyncGUI extends JFrame {
         autoDownloadCheckbox = new JCheckBox("自动下载", true);
         autoDownloadCheckbox.setFont(getUIFont(Font.PLAIN, 11));
         
+        // Bandwidth cap in KB/s, 0 for unlimited; applies to running transfers at once
+        rateLimitSpinner = new JSpinner(new SpinnerNumberModel(
+            (int) Math.min(BandwidthLimiter.getInstance().getRate() / 1024, 1024 * 1024), 0, 1024 * 1024, 256));
+        rateLimitSpinner.setFont(getUIFont(Font.PLAIN, 11));
+        rateLimitSpinner.setPreferredSize(new Dimension(80, 24));
+        rateLimitSpinner.setToolTipText("所有下载合计的最大速度，0 表示不限速");
+        
+        adaptiveConcurrencyCheckbox = new JCheckBox("自适应并发", DownloadScheduler.DEFAULT_ADAPTIVE);
+        adaptiveConcurrencyCheckbox.setFont(getUIFont(Font.PLAIN, 11));
+        adaptiveConcurrencyCheckbox.setToolTipText("根据下载速度和错误率自动调整同时下载的数量，最多 "
+            + DownloadScheduler.DEFAULT_MAX_ADAPTIVE + " 个");
+        
         // Progress bars
         progressBar = new JProgressBar();
         progressBar.setStringPainted(true);
@@ -178,7 +176,7 @@ public class MinecraftResSyncGUI extends JFrame {
         progressBar.setVisible(false);
         
         // Stage progress bar
-        stageProgressBar = new JProgressBar(0, WorkflowStage.getTotalSteps() - 1);
+        stageProgressBar = new JProgressBar(0, SyncStage.values().length * PROGRESS_BAR_SCALE);
         stageProgressBar.setStringPainted(true);
         stageProgressBar.setValue(0);
         stageProgressBar.setString("准备就绪");
@@ -223,6 +221,7 @@ public class MinecraftResSyncGUI extends JFrame {
         logArea.setEditable(false);
         logArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 10));
         logArea.setBorder(new EmptyBorder(5, 5, 5, 5));
+        SyncLog.setViewSink(lines -> SwingUtilities.invokeLater(() -> appendLogLines(lines)));
         
         // Status label
         statusLabel = new JLabel("Ready to fetch mod data");
@@ -247,6 +246,11 @@ public class MinecraftResSyncGUI extends JFrame {
         urlPanel.add(buttonPanel, BorderLayout.EAST);
         
         JPanel controlPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        JLabel rateLimitLabel = new JLabel("限速 (KB/s):");
+        rateLimitLabel.setFont(getUIFont(Font.PLAIN, 11));
+        controlPanel.add(rateLimitLabel);
+        controlPanel.add(rateLimitSpinner);
+        controlPanel.add(adaptiveConcurrencyCheckbox);
         controlPanel.add(autoDownloadCheckbox);
         
         topPanel.add(urlPanel, BorderLayout.CENTER);
@@ -368,11 +372,31 @@ public class MinecraftResSyncGUI extends JFrame {
         
         apiUrlField.addActionListener(e -> fetchModData());
         
+        rateLimitSpinner.addChangeListener(e ->
+            BandwidthLimiter.getInstance().setRate(((Number) rateLimitSpinner.getValue()).longValue() * 1024));
+        adaptiveConcurrencyCheckbox.addActionListener(e -> {
+            if (workflowPool != null) {
+                applyConcurrencyMode(workflowPool);
+            }
+        });
+    }
+    
+    /**
+     * Let the pool adapt its parallel downloads or keep them fixed, as the checkbox says
+     */
+    private void applyConcurrencyMode(DownloadPool pool) {
+        if (adaptiveConcurrencyCheckbox.isSelected()) {
+            if (pool.getController() == null) {
+                pool.enableAdaptive(DownloadScheduler.DEFAULT_MAX_ADAPTIVE);
+            }
+        } else {
+            pool.disableAdaptive();
+        }
     }
     
     private void setDefaultValues() {
         updateStatus("就绪，可以获取数据或开始完整流程");
-        updateStage(WorkflowStage.FETCH_DATA);
+        showStage("准备就绪", 0);
         appendLog("应用程序已启动，准备就绪\n");
     }
     
@@ -401,68 +425,108 @@ public class MinecraftResSyncGUI extends JFrame {
         
         appendLog("开始完整工作流程...\n");
         
-        // Start with fetch data stage
-        currentStage = WorkflowStage.FETCH_DATA;
-        executeCurrentStage(apiUrl);
+        // Every download stage of this run shares one pool, including libs queued during the fetch
+        workflowPool = new DownloadPool();
+        applyConcurrencyMode(workflowPool);
+        showStage("获取数据", 0);
+        appendLog("正在执行: 获取数据\n");
+        executeFetchDataStage(apiUrl);
     }
     
-    private void executeCurrentStage(String apiUrl) {
-        updateStage(currentStage);
-        appendLog(String.format("正在执行: %s\n", currentStage.getDescription()));
-        
-        switch (currentStage) {
-            case FETCH_DATA:
-                executeFetchDataStage(apiUrl);
-                break;
-            case DOWNLOAD_PREREQUISITE_MODS:
-                executeDownloadPrerequisiteModsStage();
-                break;
-            case DOWNLOAD_CONFIGS:
-                executeDownloadConfigsStage();
-                break;
-            case DOWNLOAD_REQUIRED_MODS:
-                executeDownloadRequiredModsStage();
-                break;
-            case SELECT_OPTIONAL_MODS:
-                executeSelectOptionalModsStage();
-                break;
-            case DOWNLOAD_RESOURCE_PACKS:
-                executeDownloadResourcePacksStage();
-                break;
-            case DOWNLOAD_SHADERS:
-                executeDownloadShadersStage();
-                break;
-            case COMPLETED:
-                completeWorkflow();
-                break;
-        }
+    /**
+     * Run the download stages as a dependency graph; stages without a dependency between them overlap
+     */
+    private void runDownloadStages() {
+        stageExecutor = new StageExecutor(EnumSet.allOf(SyncStage.class), this::executeStage, new StageExecutor.Listener() {
+            @Override
+            public void onStageStarted(SyncStage stage) {
+                appendLog(String.format("正在执行: %s\n", stage.getDisplayName()));
+            }
+            
+            @Override
+            public void onStageFinished(SyncStage stage) {
+                appendLog(String.format("阶段完成: %s\n", stage.getDisplayName()));
+            }
+        });
+        
+        progressTimer = new Timer(PROGRESS_REFRESH_MILLIS, e -> refreshWorkflowProgress());
+        progressTimer.start();
+        stageExecutor.start().thenRun(() -> SwingUtilities.invokeLater(this::completeWorkflow));
     }
     
-    private void nextStage(String apiUrl) {
-        WorkflowStage[] stages = WorkflowStage.values();
-        if (currentStage.getStepIndex() < stages.length - 1) {
-            currentStage = stages[currentStage.getStepIndex() + 1];
-            executeCurrentStage(apiUrl);
-        } else {
-            completeWorkflow();
-        }
+    /**
+     * Start one stage on the EDT
+     * @return a future completed when the stage is done
+     */
+    private CompletableFuture<Void> executeStage(SyncStage stage) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        Runnable onComplete = () -> done.complete(null);
+        SwingUtilities.invokeLater(() -> {
+            switch (stage) {
+                case PREREQUISITE_MODS:
+                    executeDownloadPrerequisiteModsStage(onComplete);
+                    break;
+                case CONFIGS:
+                    executeDownloadConfigsStage(onComplete);
+                    break;
+                case REQUIRED_MODS:
+                    executeDownloadRequiredModsStage(onComplete);
+                    break;
+                case OPTIONAL_MODS:
+                    executeSelectOptionalModsStage(onComplete);
+                    break;
+                case RESOURCE_PACKS:
+                    executeDownloadResourcePacksStage(onComplete);
+                    break;
+                case SHADERS:
+                default:
+                    executeDownloadShadersStage(onComplete);
+                    break;
+            }
+        });
+        return done;
     }
     
     private void executeFetchDataStage(String apiUrl) {
+        // A new fetch starts a new sync run; directory inventories are rebuilt on first lookup
+        DirectoryInventory.invalidateAll();
+        
         progressBar.setVisible(true);
         progressBar.setIndeterminate(true);
         progressBar.setString("正在获取数据...");
         
+        // In an auto-download workflow, libs start downloading as soon as their entry is parsed
+        earlySubmittedKeys.clear();
+        earlyPrerequisiteScheduler = (!startWorkflowButton.isEnabled() && autoDownloadCheckbox.isSelected()
+            && workflowPool != null) ? new DownloadScheduler(workflowPool) : null;
+        DownloadScheduler earlyScheduler = earlyPrerequisiteScheduler;
+        if (earlyScheduler != null) {
+            // Early items may finish while the manifest is still loading, so log them from the start
+            earlyScheduler.setListener(createStageLogListener());
+        }
+        
         SwingWorker<ModListResponse, Void> worker = new SwingWorker<ModListResponse, Void>() {
             @Override
             protected ModListResponse doInBackground() throws Exception {
-                try {
-                    String jsonResponse = HttpClient.get(apiUrl);
-                    return JsonParser.parseModListFromString(jsonResponse);
-                } catch (Exception e) {
-                    appendLog("远程获取失败，尝试本地备份...\n");
-                    return JsonParser.parseModListFromFile(getLocalModlistPath());
+                ManifestCache.Result result = ManifestCache.load(apiUrl, mod -> {
+                    if (earlyScheduler != null && SyncStage.PREREQUISITE_MODS.matches(mod) && earlySubmittedKeys.add(downloadKey(mod))) {
+                        earlyScheduler.submit(mod);
+                    }
+                });
+                switch (result.getSource()) {
+                    case NOT_MODIFIED:
+                        appendLog("清单未变化，使用本地缓存\n");
+                        break;
+                    case CACHED:
+                        appendLog("远程获取失败，使用上次缓存的清单\n");
+                        break;
+                    case LOCAL_FILE:
+                        appendLog("远程获取失败，使用本地 modlist.json\n");
+                        break;
+                    default:
+                        break;
                 }
+                return result.getResponse();
             }
             
             @Override
@@ -475,9 +539,9 @@ public class MinecraftResSyncGUI extends JFrame {
                         updateStats(response);
                         appendLog(String.format("成功加载 %d 个资源\n", response.getData().size()));
                         
-                        // Continue to next stage if in workflow
+                        // Continue with the download stages if in workflow
                         if (startWorkflowButton.isEnabled() == false) {
-                            nextStage(apiUrl);
+                            runDownloadStages();
                         } else {
                             updateStatus("数据获取完成");
                             fetchButton.setEnabled(true);
@@ -499,40 +563,43 @@ public class MinecraftResSyncGUI extends JFrame {
         worker.execute();
     }
     
-    private void executeDownloadPrerequisiteModsStage() {
+    private void executeDownloadPrerequisiteModsStage(Runnable onComplete) {
         if (currentResponse == null) {
-            nextStage(apiUrlField.getText().trim());
+            onComplete.run();
             return;
         }
         
-        List<ModInfo> prerequisiteMods = currentResponse.getData().stream()
-            .filter(mod -> "mods".equals(mod.getCatelog()) 
-                && mod.isRequired() 
-                && "libs".equals(mod.getSubject()))
-            .collect(Collectors.toList());
+        List<ModInfo> prerequisiteMods = SyncStage.PREREQUISITE_MODS.select(currentResponse.getData());
         
         appendLog(String.format("发现 %d 个必备前置mod:\n", prerequisiteMods.size()));
         for (ModInfo mod : prerequisiteMods) {
             appendLog(String.format("  - %s\n", mod.getFriendlyName()));
         }
         
+        DownloadScheduler earlyScheduler = earlyPrerequisiteScheduler;
+        earlyPrerequisiteScheduler = null;
+        
         if (autoDownloadCheckbox.isSelected() && !prerequisiteMods.isEmpty()) {
-            realDownload(prerequisiteMods, "必备前置mod", () -> nextStage(apiUrlField.getText().trim()));
+            if (earlyScheduler != null && !earlySubmittedKeys.isEmpty()) {
+                appendLog(String.format("其中 %d 个已在解析清单时开始下载\n", earlySubmittedKeys.size()));
+            }
+            realDownload(SyncStage.PREREQUISITE_MODS, earlyScheduler, prerequisiteMods, onComplete);
         } else {
+            if (earlyScheduler != null) {
+                earlyScheduler.cancel();
+            }
             appendLog("跳过下载必备前置mod\n");
-            nextStage(apiUrlField.getText().trim());
+            onComplete.run();
         }
     }
     
-    private void executeDownloadConfigsStage() {
+    private void executeDownloadConfigsStage(Runnable onComplete) {
         if (currentResponse == null) {
-            nextStage(apiUrlField.getText().trim());
+            onComplete.run();
             return;
         }
         
-        List<ModInfo> configs = currentResponse.getData().stream()
-            .filter(mod -> "config".equals(mod.getCatelog()))
-            .collect(Collectors.toList());
+        List<ModInfo> configs = SyncStage.CONFIGS.select(currentResponse.getData());
         
         appendLog(String.format("发现 %d 个配置文件:\n", configs.size()));
         for (ModInfo mod : configs) {
@@ -540,24 +607,20 @@ public class MinecraftResSyncGUI extends JFrame {
         }
         
         if (autoDownloadCheckbox.isSelected() && !configs.isEmpty()) {
-            realDownload(configs, "配置文件", () -> nextStage(apiUrlField.getText().trim()));
+            realDownload(SyncStage.CONFIGS, configs, onComplete);
         } else {
             appendLog("跳过下载配置文件\n");
-            nextStage(apiUrlField.getText().trim());
+            onComplete.run();
         }
     }
     
-    private void executeDownloadRequiredModsStage() {
+    private void executeDownloadRequiredModsStage(Runnable onComplete) {
         if (currentResponse == null) {
-            nextStage(apiUrlField.getText().trim());
+            onComplete.run();
             return;
         }
         
-        List<ModInfo> requiredMods = currentResponse.getData().stream()
-            .filter(mod -> "mods".equals(mod.getCatelog()) 
-                && mod.isRequired() 
-                && !"libs".equals(mod.getSubject()))
-            .collect(Collectors.toList());
+        List<ModInfo> requiredMods = SyncStage.REQUIRED_MODS.select(currentResponse.getData());
         
         appendLog(String.format("发现 %d 个必备mod:\n", requiredMods.size()));
         for (ModInfo mod : requiredMods) {
@@ -565,58 +628,79 @@ public class MinecraftResSyncGUI extends JFrame {
         }
         
         if (autoDownloadCheckbox.isSelected() && !requiredMods.isEmpty()) {
-            realDownload(requiredMods, "必备mod", () -> nextStage(apiUrlField.getText().trim()));
+            realDownload(SyncStage.REQUIRED_MODS, requiredMods, onComplete);
         } else {
             appendLog("跳过下载必备mod\n");
-            nextStage(apiUrlField.getText().trim());
+            onComplete.run();
         }
     }
     
-    private void executeSelectOptionalModsStage() {
+    private void executeSelectOptionalModsStage(Runnable onComplete) {
         if (currentResponse == null) {
-            nextStage(apiUrlField.getText().trim());
+            onComplete.run();
             return;
         }
         
-        List<ModInfo> optionalMods = currentResponse.getData().stream()
-            .filter(mod -> "mods".equals(mod.getCatelog()) && !mod.isRequired())
-            .collect(Collectors.toList());
+        List<ModInfo> optionalMods = SyncStage.OPTIONAL_MODS.select(currentResponse.getData());
         
         appendLog(String.format("发现 %d 个可选mod:\n", optionalMods.size()));
         
-        if (!optionalMods.isEmpty()) {
-            // Filter out mods that already exist with correct hash
-            List<ModInfo> availableMods = optionalMods.stream()
-                .filter(mod -> !FileDownloader.fileExists(mod))
-                .collect(Collectors.toList());
-            
-            appendLog(String.format("其中 %d 个需要下载，%d 个已存在\n", 
-                availableMods.size(), optionalMods.size() - availableMods.size()));
-            
-            if (availableMods.isEmpty()) {
-                appendLog("所有可选mod都已存在，跳过选择\n");
-                nextStage(apiUrlField.getText().trim());
-            } else {
-                // Show selection dialog for available mods only
-                SwingUtilities.invokeLater(() -> {
-                    showOptionalModSelectionDialog(availableMods, optionalMods, () -> nextStage(apiUrlField.getText().trim()));
-                });
-            }
-        } else {
+        if (optionalMods.isEmpty()) {
             appendLog("没有可选mod\n");
-            nextStage(apiUrlField.getText().trim());
+            onComplete.run();
+            return;
         }
+        
+        // Other stages keep downloading meanwhile, so hashing stays off the EDT
+        new SwingWorker<List<ModInfo>, Void>() {
+            @Override
+            protected List<ModInfo> doInBackground() {
+                // Filter out mods that already exist with correct hash
+                List<FileDownloader.FileStatus> statuses = BulkVerifier.verify(optionalMods, null).getStatuses();
+                List<ModInfo> availableMods = new ArrayList<>();
+                for (int i = 0; i < optionalMods.size(); i++) {
+                    if (statuses.get(i).type == FileDownloader.FileStatusType.FILE_NOT_FOUND) {
+                        availableMods.add(optionalMods.get(i));
+                    }
+                }
+                return availableMods;
+            }
+            
+            @Override
+            protected void done() {
+                List<ModInfo> availableMods;
+                try {
+                    availableMods = get();
+                } catch (Exception e) {
+                    appendLog("可选mod状态检查失败: " + e.getMessage() + "\n");
+                    onComplete.run();
+                    return;
+                }
+                
+                appendLog(String.format("其中 %d 个需要下载，%d 个已存在\n", 
+                    availableMods.size(), optionalMods.size() - availableMods.size()));
+                
+                if (availableMods.isEmpty()) {
+                    appendLog("所有可选mod都已存在，跳过选择\n");
+                    onComplete.run();
+                } else {
+                    // The network would sit idle while the user reads, so fetch candidates into the cache meanwhile
+                    OptionalModPrefetcher prefetcher = workflowPool != null
+                        ? OptionalModPrefetcher.start(workflowPool, availableMods) : null;
+                    // Show selection dialog for available mods only
+                    showOptionalModSelectionDialog(availableMods, optionalMods, prefetcher, onComplete);
+                }
+            }
+        }.execute();
     }
     
-    private void executeDownloadResourcePacksStage() {
+    private void executeDownloadResourcePacksStage(Runnable onComplete) {
         if (currentResponse == null) {
-            nextStage(apiUrlField.getText().trim());
+            onComplete.run();
             return;
         }
         
-        List<ModInfo> resourcePacks = currentResponse.getData().stream()
-            .filter(mod -> "resourcepacks".equals(mod.getCatelog()) && mod.isRequired())
-            .collect(Collectors.toList());
+        List<ModInfo> resourcePacks = SyncStage.RESOURCE_PACKS.select(currentResponse.getData());
         
         appendLog(String.format("发现 %d 个必备资源包:\n", resourcePacks.size()));
         for (ModInfo mod : resourcePacks) {
@@ -624,22 +708,20 @@ public class MinecraftResSyncGUI extends JFrame {
         }
         
         if (autoDownloadCheckbox.isSelected() && !resourcePacks.isEmpty()) {
-            realDownload(resourcePacks, "资源包", () -> nextStage(apiUrlField.getText().trim()));
+            realDownload(SyncStage.RESOURCE_PACKS, resourcePacks, onComplete);
         } else {
             appendLog("跳过下载资源包\n");
-            nextStage(apiUrlField.getText().trim());
+            onComplete.run();
         }
     }
     
-    private void executeDownloadShadersStage() {
+    private void executeDownloadShadersStage(Runnable onComplete) {
         if (currentResponse == null) {
-            nextStage(apiUrlField.getText().trim());
+            onComplete.run();
             return;
         }
         
-        List<ModInfo> shaders = currentResponse.getData().stream()
-            .filter(mod -> "shaderpacks".equals(mod.getCatelog()))
-            .collect(Collectors.toList());
+        List<ModInfo> shaders = SyncStage.SHADERS.select(currentResponse.getData());
         
         appendLog(String.format("发现 %d 个光影包:\n", shaders.size()));
         for (ModInfo mod : shaders) {
@@ -647,29 +729,86 @@ public class MinecraftResSyncGUI extends JFrame {
         }
         
         if (autoDownloadCheckbox.isSelected() && !shaders.isEmpty()) {
-            realDownload(shaders, "光影包", () -> nextStage(apiUrlField.getText().trim()));
+            realDownload(SyncStage.SHADERS, shaders, onComplete);
         } else {
             appendLog("跳过下载光影包\n");
-            nextStage(apiUrlField.getText().trim());
+            onComplete.run();
         }
     }
     
     private void updateTable(ModListResponse response) {
         tableModel.setRowCount(0);
+        int generation = ++tableGeneration;
         
-        for (ModInfo mod : response.getData()) {
-            // Check file status
-            String statusText = getFileStatusText(mod);
-            
+        List<ModInfo> mods = response.getData();
+        for (ModInfo mod : mods) {
             Object[] row = {
                 mod.getFriendlyName(),           // 名称
                 getCatalogDisplayName(mod.getCatelog()), // 类型
                 getSubjectDisplayName(mod.getSubject()), // 类别
                 mod.isRequired(),                 // 是否必需
-                statusText                        // 状态
+                STATUS_CHECKING                   // 状态
             };
             tableModel.addRow(row);
         }
+        
+        resolveFileStatuses(mods, generation);
+    }
+    
+    /**
+     * A resolved status for one table row
+     */
+    private static class StatusUpdate {
+        final int row;
+        final String text;
+        
+        StatusUpdate(int row, String text) {
+            this.row = row;
+            this.text = text;
+        }
+    }
+    
+    /**
+     * Resolve file statuses with the bulk verifier off the EDT and push them into the table in batches.
+     * Hashing and directory scans can take seconds, so the table is shown first with a placeholder.
+     */
+    private void resolveFileStatuses(List<ModInfo> mods, int generation) {
+        SwingWorker<Void, StatusUpdate> worker = new SwingWorker<Void, StatusUpdate>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                BulkVerifier.verify(mods, (row, mod, status) -> {
+                    if (generation == tableGeneration) {
+                        // publish() coalesces updates that arrive before the EDT runs process()
+                        publish(new StatusUpdate(row, getFileStatusText(status)));
+                    }
+                });
+                HashIndex.getInstance().save();
+                return null;
+            }
+            
+            @Override
+            protected void process(List<StatusUpdate> updates) {
+                // A newer fetch may have replaced the rows in the meantime
+                if (generation != tableGeneration) {
+                    return;
+                }
+                for (StatusUpdate update : updates) {
+                    if (update.row < tableModel.getRowCount()) {
+                        tableModel.setValueAt(update.text, update.row, STATUS_COLUMN);
+                    }
+                }
+            }
+            
+            @Override
+            protected void done() {
+                try {
+                    get();
+                } catch (Exception e) {
+                    appendLog("文件状态检查失败: " + e.getMessage() + "\n");
+                }
+            }
+        };
+        worker.execute();
     }
     
     /**
@@ -751,82 +890,126 @@ public class MinecraftResSyncGUI extends JFrame {
     
     
     // Helper methods for workflow
-    private void updateStage(WorkflowStage stage) {
+    private void showStage(String description, int value) {
         SwingUtilities.invokeLater(() -> {
-            stageProgressBar.setValue(stage.getStepIndex());
-            stageProgressBar.setString(String.format("%d/%d - %s", 
-                stage.getStepIndex() + 1, WorkflowStage.getTotalSteps(), stage.getDescription()));
-            stageLabel.setText("当前阶段: " + stage.getDescription());
+            stageProgressBar.setValue(value);
+            stageProgressBar.setString(description);
+            stageLabel.setText("当前阶段: " + description);
         });
     }
     
+    /**
+     * Redraw the download and stage bars from the progress of every running stage; runs on the EDT
+     */
+    private void refreshWorkflowProgress() {
+        StageExecutor executor = stageExecutor;
+        if (executor == null) {
+            return;
+        }
+        Map<SyncStage, ProgressModel.Snapshot> snapshots = new EnumMap<>(SyncStage.class);
+        for (Map.Entry<SyncStage, DownloadScheduler> entry : activeDownloads.entrySet()) {
+            snapshots.put(entry.getKey(), entry.getValue().getProgress().sample());
+        }
+        
+        progressBar.setVisible(!snapshots.isEmpty());
+        if (!snapshots.isEmpty()) {
+            showDownloadProgress(snapshots.values());
+        }
+        
+        // Finished stages count in full, running ones by their own completion
+        Set<SyncStage> finished = executor.getFinished();
+        Set<SyncStage> running = executor.getRunning();
+        double completed = finished.size();
+        List<String> parts = new ArrayList<>();
+        for (SyncStage stage : running) {
+            ProgressModel.Snapshot snapshot = snapshots.get(stage);
+            if (snapshot != null) {
+                completed += snapshot.getFraction();
+                parts.add(String.format("%s %d%%", stage.getDisplayName(), (int) (snapshot.getFraction() * 100)));
+            } else {
+                parts.add(stage.getDisplayName());
+            }
+        }
+        stageProgressBar.setValue((int) (completed * PROGRESS_BAR_SCALE));
+        String active = parts.isEmpty() ? "" : " · " + String.join(" · ", parts);
+        stageProgressBar.setString(String.format("%d/%d 完成%s", finished.size(), SyncStage.values().length, active));
+        stageLabel.setText("当前阶段: " + running.stream().map(SyncStage::getDisplayName).collect(Collectors.joining("、")));
+    }
+    
     private void appendLog(String message) {
-        SwingUtilities.invokeLater(() -> {
-            logArea.append(String.format("[%tT] %s", System.currentTimeMillis(), message));
-            logArea.setCaretPosition(logArea.getDocument().getLength());
-        });
+        SyncLog.view(message);
     }
     
-    private void realDownload(List<ModInfo> items, String itemType, Runnable onComplete) {
+    /**
+     * Append a batch of log lines, dropping the oldest lines beyond MAX_LOG_LINES
+     */
+    private void appendLogLines(List<String> lines) {
+        StringBuilder text = new StringBuilder();
+        for (String line : lines) {
+            text.append(line).append('\n');
+        }
+        logArea.append(text.toString());
+        
+        int excess = logArea.getLineCount() - MAX_LOG_LINES;
+        if (excess > 0) {
+            try {
+                logArea.replaceRange("", 0, logArea.getLineEndOffset(excess - 1));
+            } catch (BadLocationException e) {
+                logArea.setText("");
+            }
+        }
+        logArea.setCaretPosition(logArea.getDocument().getLength());
+    }
+    
+    /**
+     * Identity of a download target, stable across a remote parse and the local fallback
+     */
+    private static String downloadKey(ModInfo mod) {
+        return mod.getCatelog() + "|" + mod.getRes();
+    }
+    
+    private void realDownload(SyncStage stage, List<ModInfo> items, Runnable onComplete) {
+        realDownload(stage, null, items, onComplete);
+    }
+    
+    /**
+     * Download the items of a stage, reusing a scheduler that may already be running some of them
+     * @param existing scheduler started during the manifest fetch, or null to create one
+     */
+    private void realDownload(SyncStage stage, DownloadScheduler existing, List<ModInfo> items, Runnable onComplete) {
         if (items.isEmpty()) {
+            if (existing != null) {
+                existing.cancel();
+            }
             onComplete.run();
             return;
         }
         
-        progressBar.setVisible(true);
+        String itemType = stage.getDisplayName();
+        DownloadScheduler scheduler = existing != null ? existing
+            : workflowPool != null ? new DownloadScheduler(workflowPool) : new DownloadScheduler();
+        if (existing == null) {
+            scheduler.setListener(createStageLogListener());
+        }
         progressBar.setIndeterminate(false);
-        progressBar.setMaximum(items.size());
-        progressBar.setValue(0);
-        progressBar.setString(String.format("正在下载%s (0/%d)", itemType, items.size()));
+        progressBar.setMaximum(PROGRESS_BAR_SCALE);
+        // Workers report every read; the workflow timer redraws the bars at a fixed rate from the models
+        activeDownloads.put(stage, scheduler);
         
-        SwingWorker<Integer, String> worker = new SwingWorker<Integer, String>() {
-            private int successCount = 0;
-            private int failCount = 0;
+        SwingWorker<DownloadScheduler.Result, String> worker = new SwingWorker<DownloadScheduler.Result, String>() {
             
             @Override
-            protected Integer doInBackground() throws Exception {
-                for (int i = 0; i < items.size(); i++) {
-                    ModInfo item = items.get(i);
-                    final int currentIndex = i;
-                    
-                    // Update progress for current item
-                    SwingUtilities.invokeLater(() -> {
-                        progressBar.setValue(currentIndex);
-                        progressBar.setString(String.format("正在下载%s (%d/%d) - %s", 
-                            itemType, currentIndex + 1, items.size(), item.getFriendlyName()));
-                    });
-                    
-                    // Check if file is already ready (correct name and hash)
-                    if (FileDownloader.isFileReady(item)) {
-                        publish(String.format("跳过已就绪文件: %s", item.getFriendlyName()));
-                        successCount++;
-                        continue;
-                    }
-                    
-                    // Download the file
-                    boolean downloadSuccess = FileDownloader.downloadFile(item, 
-                        (bytesRead, totalBytes) -> {
-                            // Individual file progress (optional - could be shown in detailed view)
-                        });
-                    
-                    if (downloadSuccess) {
-                        successCount++;
-                        publish(String.format("✓ 下载成功: %s", item.getFriendlyName()));
-                    } else {
-                        failCount++;
-                        publish(String.format("✗ 下载失败: %s - %s", item.getFriendlyName(), 
-                            (item.getRes() != null ? item.getRes() : "无下载链接")));
+            protected DownloadScheduler.Result doInBackground() throws Exception {
+                publish(String.format("并发下载: 最多 %d 个任务，每个主机 %d 个",
+                    scheduler.getMaxConcurrent(), scheduler.getMaxPerHost()));
+                
+                for (ModInfo item : items) {
+                    // Items queued during the streaming fetch are already in the scheduler
+                    if (existing == null || !earlySubmittedKeys.contains(downloadKey(item))) {
+                        scheduler.submit(item);
                     }
-                    
-                    // Update main progress
-                    SwingUtilities.invokeLater(() -> {
-                        progressBar.setValue(currentIndex + 1);
-                        progressBar.setString(String.format("正在下载%s (%d/%d)", 
-                            itemType, currentIndex + 1, items.size()));
-                    });
                 }
-                
-                return successCount;
+                return scheduler.awaitCompletion();
             }
             
             @Override
@@ -839,9 +1022,11 @@ public class MinecraftResSyncGUI extends JFrame {
             
             @Override
             protected void done() {
+                activeDownloads.remove(stage);
                 try {
-                    int successful = get();
-                    progressBar.setVisible(false);
+                    DownloadScheduler.Result result = get();
+                    int successful = result.getSuccessCount();
+                    int failCount = result.getFailCount();
                     
                     final String summary = String.format("%s下载完成: 成功 %d/%d", 
                         itemType, successful, items.size());
@@ -860,6 +1045,8 @@ public class MinecraftResSyncGUI extends JFrame {
                         appendLog("✓ " + summary + "\n");
                     }
                     
+                    SyncLog.info("HTTP connection usage:\n" + HttpTransport.getInstance().describeStats());
+                    
                     // Update statistics with directory sizes
                     updateDownloadStats();
                     
@@ -876,176 +1063,85 @@ public class MinecraftResSyncGUI extends JFrame {
     }
     
     /**
-     * Get file status text for display in table
+     * Listener that logs the outcome of every item of a download stage
      */
-    private String getFileStatusText(ModInfo modInfo) {
-        try {
-            Path targetDir = FileDownloader.createDirectoryStructure(modInfo.getCatelog());
-            if (targetDir == null) return "未知";
-            
-            String fileName = getTargetFileName(modInfo);
-            String expectedHash = modInfo.getHash();
-            
-            // Check if target file exists and has correct hash
-            Path targetFile = targetDir.resolve(fileName);
-            if (Files.exists(targetFile)) {
-                if (expectedHash != null && !expectedHash.trim().isEmpty()) {
-                    String actualHash = calculateFileHash(targetFile);
-                    if (expectedHash.equalsIgnoreCase(actualHash)) {
-                        return "✓ 就绪";
-                    } else {
-                        return "⚠ 需更新";
-                    }
-                } else {
-                    return "✓ 就绪";
-                }
+    private DownloadScheduler.Listener createStageLogListener() {
+        return new DownloadScheduler.Listener() {
+            @Override
+            public void onItemStarted(ModInfo item, int completed, int total) {
+                // The refresh timer shows what is in flight
             }
             
-            // Check if any other file in the directory has the matching hash
-            if (expectedHash != null && !expectedHash.trim().isEmpty() && 
-                Files.exists(targetDir) && Files.isDirectory(targetDir)) {
-                try {
-                    Path matchingFile = Files.list(targetDir)
-                        .filter(Files::isRegularFile)
-                        .filter(file -> {
-                            try {
-                                String fileHash = calculateFileHash(file);
-                                return expectedHash.equalsIgnoreCase(fileHash);
-                            } catch (Exception e) {
-                                return false;
-                            }
-                        })
-                        .findFirst()
-                        .orElse(null);
-                        
-                    if (matchingFile != null) {
-                        return "🔄 需重命名";
-                    }
-                } catch (Exception e) {
-                    // Ignore directory scanning errors
+            @Override
+            public void onItemFinished(ModInfo item, DownloadScheduler.Outcome outcome, int completed, int total) {
+                switch (outcome) {
+                    case ALREADY_READY:
+                        appendLog(String.format("跳过已就绪文件: %s\n", item.getFriendlyName()));
+                        break;
+                    case DOWNLOADED:
+                        appendLog(String.format("✓ 下载成功: %s\n", item.getFriendlyName()));
+                        break;
+                    default:
+                        appendLog(String.format("✗ 下载失败: %s - %s\n", item.getFriendlyName(),
+                            (item.getRes() != null ? item.getRes() : "无下载链接")));
+                        break;
                 }
             }
-            
-            return "📥 待下载";
-            
-        } catch (Exception e) {
-            return "未知";
-        }
+        };
     }
     
     /**
-     * Generate target file name using friendly_name with appropriate extension (UI helper)
+     * Show the combined progress of all running downloads on the progress bar
      */
-    private String getTargetFileName(ModInfo modInfo) {
-        String friendlyName = modInfo.getFriendlyName();
-        if (friendlyName == null || friendlyName.trim().isEmpty()) {
-            // Fallback to raw name if friendly name is not available
-            String rawName = modInfo.getRawName();
-            if (rawName != null && !rawName.trim().isEmpty()) {
-                return rawName;
-            }
-            // Last resort: extract from URL
-            return extractFileNameFromUrl(modInfo.getRes());
+    private void showDownloadProgress(Collection<ProgressModel.Snapshot> snapshots) {
+        int itemsDone = 0;
+        int itemsTotal = 0;
+        long bytesDone = 0;
+        long bytesTotal = 0;
+        double rate = 0;
+        for (ProgressModel.Snapshot snapshot : snapshots) {
+            itemsDone += snapshot.getItemsDone();
+            itemsTotal += snapshot.getItemsTotal();
+            bytesDone += snapshot.getBytesDone();
+            bytesTotal += Math.max(snapshot.getBytesTotal(), snapshot.getBytesDone());
+            // Every model measures only its own transfers
+            rate += snapshot.getSmoothedRate();
         }
         
-        // Determine extension from raw_name or URL
-        String extension = getFileExtension(modInfo);
-        
-        // Combine friendly name with extension
-        return friendlyName + extension;
-    }
-    
-    /**
-     * Get file extension from raw_name or URL (UI helper)
-     */
-    private String getFileExtension(ModInfo modInfo) {
-        // First try to get extension from raw_name
-        String rawName = modInfo.getRawName();
-        if (rawName != null && !rawName.trim().isEmpty()) {
-            int dotIndex = rawName.lastIndexOf('.');
-            if (dotIndex > 0 && dotIndex < rawName.length() - 1) {
-                return rawName.substring(dotIndex);
+        double fraction = bytesTotal > 0 ? (double) bytesDone / bytesTotal
+            : itemsTotal > 0 ? (double) itemsDone / itemsTotal : 0;
+        progressBar.setValue((int) (Math.min(1.0, fraction) * PROGRESS_BAR_SCALE));
+        StringBuilder text = new StringBuilder(String.format("正在下载 (%d/%d)", itemsDone, itemsTotal));
+        if (bytesDone > 0) {
+            text.append(" · ").append(FileDownloader.formatBytes(bytesDone));
+            if (bytesTotal > 0) {
+                text.append(" / 约 ").append(FileDownloader.formatBytes(bytesTotal));
             }
-        }
-        
-        // Fallback to URL
-        String url = modInfo.getRes();
-        if (url != null) {
-            try {
-                String path = new URL(url).getPath();
-                int dotIndex = path.lastIndexOf('.');
-                if (dotIndex > 0 && dotIndex < path.length() - 1) {
-                    return path.substring(dotIndex);
-                }
-            } catch (Exception e) {
-                // Ignore URL parsing errors
+            text.append(" · ").append(FileDownloader.formatBytes((long) rate)).append("/s");
+            if (rate > 0 && bytesTotal > bytesDone) {
+                text.append(" · 剩余 ").append(ProgressModel.formatDuration((long) Math.ceil((bytesTotal - bytesDone) / rate)));
             }
         }
-        
-        // Default extension based on catalog
-        String catalog = modInfo.getCatelog();
-        if (catalog != null) {
-            switch (catalog.toLowerCase()) {
-                case "mods":
-                    return ".jar";
-                case "resourcepacks":
-                case "shaderpacks":
-                    return ".zip";
-                case "config":
-                    return ".json";
-            }
-        }
-        
-        // Final fallback
-        return ".jar";
+        progressBar.setString(text.toString());
     }
     
     /**
-     * Extract filename from URL (helper method for UI)
+     * Get file status text for display in table
      */
-    private String extractFileNameFromUrl(String urlStr) {
-        try {
-            String path = new URL(urlStr).getPath();
-            String fileName = path.substring(path.lastIndexOf('/') + 1);
-            return fileName.isEmpty() ? "downloaded_file" : fileName;
-        } catch (Exception e) {
-            return "downloaded_file_" + System.currentTimeMillis();
+    private String getFileStatusText(FileDownloader.FileStatus status) {
+        if (status == null) {
+            return "未知";
         }
-    }
-    
-    /**
-     * Calculate MD5 hash of a file (helper method for UI)
-     */
-    private String calculateFileHash(Path file) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("MD5");
-            
-            try (FileInputStream fis = new FileInputStream(file.toFile());
-                 BufferedInputStream bis = new BufferedInputStream(fis)) {
-                
-                byte[] buffer = new byte[8192];
-                int bytesRead;
-                
-                while ((bytesRead = bis.read(buffer)) != -1) {
-                    digest.update(buffer, 0, bytesRead);
-                }
-            }
-            
-            byte[] hashBytes = digest.digest();
-            StringBuilder hexString = new StringBuilder();
-            
-            for (byte b : hashBytes) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) {
-                    hexString.append('0');
-                }
-                hexString.append(hex);
-            }
-            
-            return hexString.toString();
-            
-        } catch (Exception e) {
-            return null;
+        switch (status.type) {
+            case FILE_UP_TO_DATE:
+                return "✓ 就绪";
+            case FILE_NEEDS_UPDATE:
+                return "⚠ 需更新";
+            case FILE_NEEDS_RENAME:
+                return "🔄 需重命名";
+            case FILE_NOT_FOUND:
+            default:
+                return "📥 待下载";
         }
     }
     
@@ -1082,7 +1178,8 @@ public class MinecraftResSyncGUI extends JFrame {
         return String.format("%.1f GB", bytes / (1024.0 * 1024 * 1024));
     }
     
-    private void showOptionalModSelectionDialog(List<ModInfo> availableMods, List<ModInfo> allOptionalMods, Runnable onComplete) {
+    private void showOptionalModSelectionDialog(List<ModInfo> availableMods, List<ModInfo> allOptionalMods,
+                                                OptionalModPrefetcher prefetcher, Runnable onComplete) {
         JDialog dialog = new JDialog(this, "选择可选MOD", true);
         dialog.setSize(900, 500); // 增大宽度以适应分屏布局
         dialog.setLocationRelativeTo(this);
@@ -1239,28 +1336,120 @@ public class MinecraftResSyncGUI extends JFrame {
             
             if (!selectedMods.isEmpty()) {
                 appendLog(String.format("用户选择了 %d 个可选mod\n", selectedMods.size()));
-                realDownload(selectedMods, "可选mod", onComplete);
+                finishPrefetch(prefetcher, selectedMods, () -> realDownload(SyncStage.OPTIONAL_MODS, selectedMods, onComplete));
             } else {
                 appendLog("用户未选择任何可选mod\n");
-                onComplete.run();
+                finishPrefetch(prefetcher, Collections.emptyList(), onComplete);
             }
         });
         
         skipButton.addActionListener(e -> {
             dialog.dispose();
             appendLog("跳过可选mod选择\n");
-            onComplete.run();
+            finishPrefetch(prefetcher, Collections.emptyList(), onComplete);
         });
         
         dialog.setVisible(true);
     }
     
+    /**
+     * Stop the optional-mod prefetch for the given selection and continue on the EDT once the
+     * selected mods that were still being prefetched have landed in the cache
+     */
+    private void finishPrefetch(OptionalModPrefetcher prefetcher, List<ModInfo> selectedMods, Runnable next) {
+        if (prefetcher == null) {
+            next.run();
+            return;
+        }
+        prefetcher.finish(selectedMods).thenAccept(report -> SwingUtilities.invokeLater(() -> {
+            if (report.getPrefetchedCount() > 0 || report.getAbandonedCount() > 0) {
+                String hitRate = report.getHitRate() < 0 ? "-" : String.format("%.0f%%", report.getHitRate() * 100);
+                appendLog(String.format("预取: %d 个 (%s)，命中 %d 个 (%s)，未选 %d 个 (%s) 保留在缓存中，命中率 %s，取消 %d 个\n",
+                    report.getPrefetchedCount(), formatBytes(report.getPrefetchedBytes()),
+                    report.getUsedCount(), formatBytes(report.getUsedBytes()),
+                    report.getWastedCount(), formatBytes(report.getWastedBytes()),
+                    hitRate, report.getAbandonedCount()));
+            }
+            next.run();
+        }));
+    }
+    
+    /**
+     * Show the result of the background update check in a non-modal notice at the bottom right of the window
+     */
+    public void showUpdateNotice(UpdateChecker.UpdateInfo info) {
+        if (info == null || !info.isUpdateAvailable()) {
+            return;
+        }
+        appendLog("发现新版本: " + UpdateChecker.UpdateInfo.shortHash(info.getLatestHash()) + "\n");
+        
+        JDialog notice = new JDialog(this, "更新提醒", false);
+        notice.setFocusableWindowState(false);
+        
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(new EmptyBorder(12, 15, 12, 15));
+        JLabel message = new JLabel("<html>发现新版本<br>当前版本: " + UpdateChecker.UpdateInfo.shortHash(info.getCurrentHash())
+            + "<br>最新版本: " + UpdateChecker.UpdateInfo.shortHash(info.getLatestHash()) + "</html>");
+        message.setFont(getUIFont(Font.PLAIN, 12));
+        panel.add(message, BorderLayout.CENTER);
+        
+        JButton updateButton = new JButton("立即更新");
+        updateButton.setFont(getUIFont(Font.BOLD, 11));
+        JButton laterButton = new JButton("稍后");
+        laterButton.setFont(getUIFont(Font.PLAIN, 11));
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        buttons.add(laterButton);
+        buttons.add(updateButton);
+        panel.add(buttons, BorderLayout.SOUTH);
+        
+        laterButton.addActionListener(e -> notice.dispose());
+        updateButton.addActionListener(e -> {
+            updateButton.setEnabled(false);
+            laterButton.setEnabled(false);
+            message.setText("正在下载更新…");
+            new SwingWorker<Boolean, Void>() {
+                @Override
+                protected Boolean doInBackground() {
+                    return UpdateChecker.downloadUpdate(info);
+                }
+                
+                @Override
+                protected void done() {
+                    notice.dispose();
+                    boolean updated;
+                    try {
+                        updated = get();
+                    } catch (Exception ex) {
+                        updated = false;
+                    }
+                    if (updated) {
+                        JOptionPane.showMessageDialog(MinecraftResSyncGUI.this,
+                            "更新完成！请重新启动应用程序。\n\n新版本哈希: " + UpdateChecker.UpdateInfo.shortHash(info.getLatestHash()),
+                            "更新完成", JOptionPane.INFORMATION_MESSAGE);
+                        System.exit(0);
+                    } else {
+                        JOptionPane.showMessageDialog(MinecraftResSyncGUI.this,
+                            "更新失败，请查看日志", "更新错误", JOptionPane.ERROR_MESSAGE);
+                    }
+                }
+            }.execute();
+        });
+        
+        notice.setContentPane(panel);
+        notice.pack();
+        Rectangle bounds = getBounds();
+        notice.setLocation(bounds.x + bounds.width - notice.getWidth() - 20,
+            bounds.y + bounds.height - notice.getHeight() - 40);
+        notice.setVisible(true);
+    }
+    
     private void completeWorkflow() {
-        currentStage = WorkflowStage.COMPLETED;
-        updateStage(currentStage);
+        stopWorkflowDownloads();
+        showStage("完成", stageProgressBar.getMaximum());
         
         appendLog("\n=== 工作流程完成 ===\n");
         appendLog("所有阶段已完成，Minecraft资源同步工具已准备就绪\n");
+        appendRetrySummary();
         
         updateStatus("工作流程完成！");
         
@@ -1290,9 +1479,64 @@ public class MinecraftResSyncGUI extends JFrame {
         });
     }
     
+    /**
+     * Log how often transfers were retried and which hosts were paused by their circuit breaker
+     */
+    private void appendRetrySummary() {
+        RetryPolicy retryPolicy = RetryPolicy.getInstance();
+        if (retryPolicy.getRetryCount() == 0 && retryPolicy.getExhaustedCount() == 0) {
+            return;
+        }
+        appendLog(String.format("重试 %d 次，其中 %d 个下载重试后成功，%d 个重试后仍失败\n",
+            retryPolicy.getRetryCount(), retryPolicy.getRecoveredCount(), retryPolicy.getExhaustedCount()));
+        retryPolicy.getBreakers().forEach((host, breaker) -> {
+            if (breaker.getTrips() > 0) {
+                String state = breaker.getState() == CircuitBreaker.State.CLOSED ? "已恢复" : "暂停中";
+                appendLog(String.format("  %s: 连续失败熔断 %d 次，跳过 %d 个请求（%s）\n",
+                    host.isEmpty() ? "(未知)" : host, breaker.getTrips(), breaker.getRejected(), state));
+            }
+        });
+    }
+    
+    /**
+     * Stop the progress timer, cancel stages that are still running and release the shared pool
+     */
+    private void stopWorkflowDownloads() {
+        if (progressTimer != null) {
+            progressTimer.stop();
+            progressTimer = null;
+        }
+        if (stageExecutor != null) {
+            stageExecutor.cancel();
+            stageExecutor = null;
+        }
+        // Their workers return once running transfers finish, and no further stage is started
+        for (DownloadScheduler scheduler : activeDownloads.values()) {
+            scheduler.cancel();
+        }
+        activeDownloads.clear();
+        if (workflowPool != null) {
+            ConcurrencyController controller = workflowPool.getController();
+            if (controller != null && (controller.getIncreaseCount() > 0 || controller.getDecreaseCount() > 0)) {
+                appendLog(String.format("自适应并发: 结束时 %d 个（初始 %d，最高 %d），每主机 %d 个（初始 %d，最高 %d），增加 %d 次，减半 %d 次\n",
+                    workflowPool.getConcurrencyLimit(), workflowPool.getMaxConcurrent(), controller.getPeakLimit(),
+                    workflowPool.getPerHostLimit(), workflowPool.getMaxPerHost(), controller.getPeakPerHostLimit(),
+                    controller.getIncreaseCount(), controller.getDecreaseCount()));
+            }
+            workflowPool.shutdown();
+            workflowPool = null;
+        }
+        progressBar.setVisible(false);
+    }
+    
     private void resetWorkflow() {
-        currentStage = WorkflowStage.FETCH_DATA;
-        updateStage(currentStage);
+        DownloadScheduler earlyScheduler = earlyPrerequisiteScheduler;
+        earlyPrerequisiteScheduler = null;
+        if (earlyScheduler != null) {
+            earlyScheduler.cancel();
+        }
+        stopWorkflowDownloads();
+        showStage("准备就绪", 0);
         startWorkflowButton.setEnabled(true);
         fetchButton.setEnabled(true);
         progressBar.setVisible(false);
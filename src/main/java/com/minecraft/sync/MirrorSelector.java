@@ -0,0 +1,194 @@
+package com.minecraft.sync;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Orders the download sources of a file fastest first.
+ * A host is ranked by the expected time to fetch a reference-sized file from it: smoothed
+ * time to first byte plus the reference size at its smoothed throughput, scaled up by its
+ * current failure streak; hosts whose circuit breaker is open go last. Ranking never waits:
+ * hosts without recent measurements are probed once per run in the background with a small
+ * ranged GET, and count with default estimates until the probe reports. Real transfers feed
+ * the same MirrorStats through a Measurement, so the ranking keeps improving across runs.
+ */
+public class MirrorSelector {
+
+    private static final int PROBE_BYTES = 64 * 1024;
+    private static final int PROBE_TIMEOUT_MILLIS = 5000;
+    // Measurements older than this are refreshed by a probe
+    private static final long PROBE_MAX_AGE_MILLIS = 24L * 60 * 60 * 1000;
+    private static final long REFERENCE_BYTES = 1024 * 1024;
+    // Assumed for hosts whose latency or throughput has not been measured yet
+    private static final long DEFAULT_LATENCY_MILLIS = 500;
+    private static final long DEFAULT_BYTES_PER_SECOND = 1024 * 1024;
+    // Transfers smaller than this finish too fast to say anything about throughput
+    private static final long MIN_RATE_BYTES = 256 * 1024;
+
+    private static final AtomicInteger threadCounter = new AtomicInteger(1);
+    private static final ExecutorService probePool = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "mirror-probe-" + threadCounter.getAndIncrement());
+        t.setDaemon(true);
+        return t;
+    });
+
+    // One probe per host per run, shared by every file that lists the host
+    private static final Map<String, CompletableFuture<Void>> probes = new ConcurrentHashMap<>();
+
+    /**
+     * Progress callback that times a transfer from one source and records the outcome
+     */
+    static class Measurement implements FileDownloader.ProgressCallback {
+        private final String host;
+        private final FileDownloader.ProgressCallback delegate;
+        private final long startNanos = System.nanoTime();
+        private long firstNanos = -1;
+        private long lastNanos;
+        private long firstBytes;
+        private long lastBytes;
+        private volatile boolean aborted = false;
+
+        Measurement(String url, FileDownloader.ProgressCallback delegate) {
+            this.host = RetryPolicy.hostKey(url);
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onProgress(long bytesRead, long totalBytes) {
+            synchronized (this) {
+                long now = System.nanoTime();
+                if (firstNanos < 0) {
+                    firstNanos = now;
+                    firstBytes = bytesRead;
+                }
+                lastNanos = now;
+                lastBytes = Math.max(lastBytes, bytesRead);
+            }
+            if (delegate != null) {
+                try {
+                    delegate.onProgress(bytesRead, totalBytes);
+                } catch (RuntimeException e) {
+                    // The caller stopped the transfer; that says nothing about the source
+                    aborted = true;
+                    throw e;
+                }
+            }
+        }
+
+        /**
+         * Whether the caller's callback stopped the transfer, so no other source should be tried
+         */
+        boolean isAborted() {
+            return aborted;
+        }
+
+        synchronized void finish(boolean success) {
+            if (aborted) {
+                return;
+            }
+            if (!success) {
+                MirrorStats.getInstance().recordFailure(host);
+                return;
+            }
+            long latency = firstNanos < 0 ? -1 : (firstNanos - startNanos) / 1_000_000;
+            long bytes = lastBytes - firstBytes;
+            long millis = (lastNanos - firstNanos) / 1_000_000;
+            MirrorStats.getInstance().recordSuccess(host, latency, bytes >= MIN_RATE_BYTES ? bytes : 0, millis);
+        }
+    }
+
+    /**
+     * Sources of a file, fastest first; ties keep the manifest order
+     */
+    public static List<String> rank(ModInfo mod) {
+        return rank(mod, null);
+    }
+
+    /**
+     * Sources of a file, fastest first, optionally with one source moved to the front
+     * @param first a source already chosen by the caller, or null
+     */
+    public static List<String> rank(ModInfo mod, String first) {
+        List<String> sources = mod.getSources();
+        if (sources.size() <= 1) {
+            return sources;
+        }
+
+        for (String url : sources) {
+            String host = RetryPolicy.hostKey(url);
+            if (!probes.containsKey(host) && needsProbe(host)) {
+                probes.computeIfAbsent(host, h -> CompletableFuture.runAsync(() -> probe(h, url), probePool));
+            }
+        }
+
+        List<String> ranked = new ArrayList<>(sources);
+        ranked.sort(Comparator.comparingDouble(url -> score(RetryPolicy.hostKey(url))));
+        if (first != null && ranked.remove(first)) {
+            ranked.add(0, first);
+        }
+        return Collections.unmodifiableList(ranked);
+    }
+
+    /**
+     * Expected seconds to fetch a reference-sized file from the host; lower is better
+     */
+    static double score(String host) {
+        if (!RetryPolicy.getInstance().isAvailable(host)) {
+            return Double.MAX_VALUE;
+        }
+        MirrorStats.Entry entry = MirrorStats.getInstance().get(host);
+        long latency = entry != null && entry.getLatencyMillis() >= 0 ? entry.getLatencyMillis() : DEFAULT_LATENCY_MILLIS;
+        long rate = entry != null && entry.getBytesPerSecond() > 0 ? entry.getBytesPerSecond() : DEFAULT_BYTES_PER_SECOND;
+        int failures = entry != null ? entry.getConsecutiveFailures() : 0;
+        return (latency / 1000.0 + (double) REFERENCE_BYTES / rate) * (1 + failures);
+    }
+
+    private static boolean needsProbe(String host) {
+        MirrorStats.Entry entry = MirrorStats.getInstance().get(host);
+        return entry == null || entry.getLatencyMillis() < 0 || entry.getConsecutiveFailures() > 0
+            || System.currentTimeMillis() - entry.getUpdatedAt() > PROBE_MAX_AGE_MILLIS;
+    }
+
+    /**
+     * Time the first bytes of a source with a ranged GET
+     */
+    private static void probe(String host, String url) {
+        MirrorStats stats = MirrorStats.getInstance();
+        long start = System.nanoTime();
+        try (HttpTransport.Response response = HttpTransport.getInstance().send("GET", url,
+                Collections.singletonMap("Range", "bytes=0-" + (PROBE_BYTES - 1)), PROBE_TIMEOUT_MILLIS)) {
+            int responseCode = response.getStatusCode();
+            if (responseCode != 200 && responseCode != 206) {
+                SyncLog.info("Mirror probe of " + host + " failed: HTTP " + responseCode);
+                stats.recordFailure(host);
+                return;
+            }
+            long firstByte = System.nanoTime();
+            long bytes = 0;
+            byte[] buffer = new byte[16 * 1024];
+            InputStream in = response.getBody();
+            int n;
+            while (bytes < PROBE_BYTES && (n = in.read(buffer, 0, (int) Math.min(buffer.length, PROBE_BYTES - bytes))) != -1) {
+                bytes += n;
+            }
+            long latency = (firstByte - start) / 1_000_000;
+            long transferMillis = (System.nanoTime() - firstByte) / 1_000_000;
+            stats.recordSuccess(host, latency, bytes, transferMillis);
+            SyncLog.info("Mirror probe of " + host + ": " + latency + " ms to first byte");
+        } catch (IOException e) {
+            SyncLog.info("Mirror probe of " + host + " failed: "
+                + (e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()));
+            stats.recordFailure(host);
+        }
+    }
+}
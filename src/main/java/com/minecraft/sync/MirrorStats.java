@@ -0,0 +1,202 @@
+package com.minecraft.sync;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent per-host download performance, used to rank mirrors.
+ * Keeps a smoothed time to first byte and throughput per host from probes and real transfers,
+ * plus the current failure streak. Stored under the sync root in .mcsync/ so later runs start
+ * from what earlier runs measured; entries not updated for a month are dropped on load.
+ */
+public class MirrorStats {
+
+    private static final String STATS_DIR = ".mcsync";
+    private static final String STATS_FILE = "mirror-stats.json";
+    private static final long MAX_AGE_MILLIS = 30L * 24 * 60 * 60 * 1000;
+    // Weight of a new measurement in the smoothed values
+    private static final double SMOOTHING = 0.3;
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+    private static volatile MirrorStats instance;
+
+    private final Path statsFile;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean dirty = false;
+
+    /**
+     * Measurements for one host. Entries are replaced, never modified, so readers always
+     * see a consistent snapshot.
+     */
+    public static class Entry {
+        // Smoothed time to first byte in milliseconds, or -1 if never measured
+        private long latencyMillis = -1;
+        // Smoothed transfer rate in bytes per second, or -1 if never measured
+        private long bytesPerSecond = -1;
+        private int successes;
+        private int failures;
+        private int consecutiveFailures;
+        private long updatedAt;
+
+        private Entry copy() {
+            Entry e = new Entry();
+            e.latencyMillis = latencyMillis;
+            e.bytesPerSecond = bytesPerSecond;
+            e.successes = successes;
+            e.failures = failures;
+            e.consecutiveFailures = consecutiveFailures;
+            e.updatedAt = System.currentTimeMillis();
+            return e;
+        }
+
+        public long getLatencyMillis() { return latencyMillis; }
+        public long getBytesPerSecond() { return bytesPerSecond; }
+        public int getSuccesses() { return successes; }
+        public int getFailures() { return failures; }
+        public int getConsecutiveFailures() { return consecutiveFailures; }
+        public long getUpdatedAt() { return updatedAt; }
+    }
+
+    /**
+     * Get the shared stats for the sync root, loading them from disk on first use
+     */
+    public static MirrorStats getInstance() {
+        if (instance == null) {
+            synchronized (MirrorStats.class) {
+                if (instance == null) {
+                    MirrorStats stats = new MirrorStats(FileDownloader.getBaseDir());
+                    stats.load();
+                    Runtime.getRuntime().addShutdownHook(new Thread(stats::save, "mirror-stats-save"));
+                    instance = stats;
+                }
+            }
+        }
+        return instance;
+    }
+
+    private MirrorStats(Path rootDir) {
+        this.statsFile = rootDir.toAbsolutePath().normalize().resolve(STATS_DIR).resolve(STATS_FILE);
+    }
+
+    /**
+     * Measurements for a host, or null if it was never used
+     */
+    public Entry get(String host) {
+        return entries.get(host);
+    }
+
+    /**
+     * Record a successful exchange
+     * @param latencyMillis time to first byte, or -1 if not measured
+     * @param bytes body bytes timed for the rate, 0 if too few to say anything
+     * @param transferMillis time spent receiving those bytes
+     */
+    public void recordSuccess(String host, long latencyMillis, long bytes, long transferMillis) {
+        entries.compute(host, (h, old) -> {
+            Entry e = old != null ? old.copy() : new Entry();
+            e.updatedAt = System.currentTimeMillis();
+            if (latencyMillis >= 0) {
+                e.latencyMillis = smooth(e.latencyMillis, latencyMillis);
+            }
+            if (bytes > 0 && transferMillis > 0) {
+                e.bytesPerSecond = smooth(e.bytesPerSecond, bytes * 1000 / transferMillis);
+            }
+            e.successes++;
+            e.consecutiveFailures = 0;
+            return e;
+        });
+        dirty = true;
+    }
+
+    /**
+     * Record a failed exchange
+     */
+    public void recordFailure(String host) {
+        entries.compute(host, (h, old) -> {
+            Entry e = old != null ? old.copy() : new Entry();
+            e.updatedAt = System.currentTimeMillis();
+            e.failures++;
+            e.consecutiveFailures++;
+            return e;
+        });
+        dirty = true;
+    }
+
+    /**
+     * Snapshot of all hosts, sorted by host
+     */
+    public Map<String, Entry> getEntries() {
+        return new TreeMap<>(entries);
+    }
+
+    /**
+     * One line per host: latency, throughput and outcome counts
+     */
+    public String describeStats() {
+        StringBuilder sb = new StringBuilder();
+        getEntries().forEach((host, e) -> sb.append(String.format("  %s: %s to first byte, %s/s, %d ok, %d failed%n",
+            host.isEmpty() ? "(unknown)" : host, e.latencyMillis >= 0 ? e.latencyMillis + " ms" : "-",
+            e.bytesPerSecond > 0 ? FileDownloader.formatBytes(e.bytesPerSecond) : "-", e.successes, e.failures)));
+        return sb.toString();
+    }
+
+    private static long smooth(long previous, long sample) {
+        return previous < 0 ? sample : Math.round(previous + SMOOTHING * (sample - previous));
+    }
+
+    /**
+     * Write the stats to disk if they changed since the last save
+     */
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+
+        try {
+            Files.createDirectories(statsFile.getParent());
+            Path tempFile = statsFile.resolveSibling(STATS_FILE + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                gson.toJson(new TreeMap<>(entries), writer);
+            }
+            Files.move(tempFile, statsFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            dirty = true;
+            SyncLog.error("Failed to save mirror stats: " + e.getMessage());
+        }
+    }
+
+    private void load() {
+        if (!Files.exists(statsFile)) {
+            return;
+        }
+
+        try (Reader reader = Files.newBufferedReader(statsFile, StandardCharsets.UTF_8)) {
+            Type type = new TypeToken<Map<String, Entry>>() {}.getType();
+            Map<String, Entry> loaded = gson.fromJson(reader, type);
+            if (loaded != null) {
+                long cutoff = System.currentTimeMillis() - MAX_AGE_MILLIS;
+                loaded.forEach((host, entry) -> {
+                    if (host != null && entry != null && entry.updatedAt >= cutoff) {
+                        entries.put(host, entry);
+                    }
+                });
+            }
+        } catch (Exception e) {
+            // Only affects mirror order; start over
+            SyncLog.error("Ignoring unreadable mirror stats: " + e.getMessage());
+        }
+    }
+}
@@ -1,14 +1,20 @@
 package com.minecraft.sync;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 public class ModInfo {
     private String catelog;
     private String description;
     private String friendly_name;
     private String hash;
+    private String hash_algo;
     private int id;
     private boolean is_require;
     private String raw_name;
     private String res;
+    private List<String> mirrors;
     private String subject;
 
     // Getters and setters
@@ -44,6 +50,24 @@ public class ModInfo {
         this.hash = hash;
     }
 
+    /**
+     * Algorithm tag from the manifest ("md5", "sha1", "sha256"), or null if not given
+     */
+    public String getHashAlgo() {
+        return hash_algo;
+    }
+
+    public void setHashAlgo(String hash_algo) {
+        this.hash_algo = hash_algo;
+    }
+
+    /**
+     * Algorithm the hash is verified with, or null if the manifest names an unsupported one
+     */
+    public DigestAlgorithm getDigestAlgorithm() {
+        return DigestAlgorithm.forManifest(hash_algo, hash);
+    }
+
     public int getId() {
         return id;
     }
@@ -76,6 +100,36 @@ public class ModInfo {
         this.res = res;
     }
 
+    /**
+     * Alternative download URLs from the manifest in preference order, or an empty list
+     */
+    public List<String> getMirrors() {
+        return mirrors != null ? Collections.unmodifiableList(mirrors) : Collections.emptyList();
+    }
+
+    public void setMirrors(List<String> mirrors) {
+        this.mirrors = mirrors != null ? new ArrayList<>(mirrors) : null;
+    }
+
+    /**
+     * Every URL the file can be downloaded from: res first, then the mirrors, without
+     * blanks or duplicates. Manifests without mirrors yield just res.
+     */
+    public List<String> getSources() {
+        List<String> sources = new ArrayList<>();
+        if (res != null && !res.trim().isEmpty()) {
+            sources.add(res.trim());
+        }
+        if (mirrors != null) {
+            for (String mirror : mirrors) {
+                if (mirror != null && !mirror.trim().isEmpty() && !sources.contains(mirror.trim())) {
+                    sources.add(mirror.trim());
+                }
+            }
+        }
+        return sources;
+    }
+
     public String getSubject() {
         return subject;
     }
@@ -0,0 +1,262 @@
+package com.minecraft.sync;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Speculative download of optional mods while the user is still choosing them.
+ * Candidates are fetched at background priority on the workflow's pool into a holding
+ * directory under the shared cache, verified, and then added to the ContentStore. Selected
+ * mods are afterwards installed from the store without a transfer; unselected ones stay in
+ * the store, where its size limit evicts them least-recently-used first. Disabled with
+ * -Dmcsync.prefetch.enabled=false, and capped at mcsync.prefetch.maxBytes per run.
+ */
+public class OptionalModPrefetcher {
+
+    private static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("mcsync.prefetch.enabled"));
+    private static final long MAX_BYTES = Long.getLong("mcsync.prefetch.maxBytes", 512L * 1024 * 1024);
+    private static final String HOLDING_DIR = "prefetch";
+    private static final String HOLDING_SUFFIX = ".prefetch";
+
+    private enum State {
+        QUEUED,
+        RUNNING,
+        CACHED,
+        FAILED
+    }
+
+    /**
+     * How well the speculation paid off once the selection is known
+     */
+    public static class Report {
+        private final int prefetchedCount;
+        private final long prefetchedBytes;
+        private final int usedCount;
+        private final long usedBytes;
+        private final int abandonedCount;
+
+        Report(int prefetchedCount, long prefetchedBytes, int usedCount, long usedBytes, int abandonedCount) {
+            this.prefetchedCount = prefetchedCount;
+            this.prefetchedBytes = prefetchedBytes;
+            this.usedCount = usedCount;
+            this.usedBytes = usedBytes;
+            this.abandonedCount = abandonedCount;
+        }
+
+        /** Mods fully downloaded into the cache ahead of the selection */
+        public int getPrefetchedCount() { return prefetchedCount; }
+        public long getPrefetchedBytes() { return prefetchedBytes; }
+        /** Prefetched mods the user selected */
+        public int getUsedCount() { return usedCount; }
+        public long getUsedBytes() { return usedBytes; }
+        /** Prefetched mods the user did not select; they remain in the cache */
+        public int getWastedCount() { return prefetchedCount - usedCount; }
+        public long getWastedBytes() { return prefetchedBytes - usedBytes; }
+        /** Queued or running prefetches dropped when the selection was made */
+        public int getAbandonedCount() { return abandonedCount; }
+
+        /**
+         * Share of prefetched mods that were selected, or -1 if nothing was prefetched
+         */
+        public double getHitRate() {
+            return prefetchedCount > 0 ? (double) usedCount / prefetchedCount : -1;
+        }
+    }
+
+    private final DownloadPool pool;
+    private final ContentStore store;
+    private final Path holdingDir;
+
+    // Per-candidate state and totals, guarded by this
+    private final Map<ModInfo, State> states = new HashMap<>();
+    private final Map<ModInfo, Long> cachedBytes = new HashMap<>();
+    private long reservedBytes = 0;
+    private int abandonedCount = 0;
+    private Set<ModInfo> selection;
+    private CompletableFuture<Void> settled;
+
+    private OptionalModPrefetcher(DownloadPool pool, ContentStore store) {
+        this.pool = pool;
+        this.store = store;
+        this.holdingDir = store.getRoot().resolve(HOLDING_DIR);
+    }
+
+    /**
+     * Start prefetching candidates that are not cached yet
+     * @return the running prefetcher, or null if prefetching or the shared cache is disabled
+     */
+    public static OptionalModPrefetcher start(DownloadPool pool, List<ModInfo> candidates) {
+        ContentStore store = ContentStore.getInstance();
+        if (!ENABLED || store == null) {
+            return null;
+        }
+        OptionalModPrefetcher prefetcher = new OptionalModPrefetcher(pool, store);
+        int queued = 0;
+        for (ModInfo mod : candidates) {
+            if (prefetcher.enqueue(mod)) {
+                queued++;
+            }
+        }
+        SyncLog.info("Prefetching " + queued + " optional mod(s) in the background");
+        return prefetcher;
+    }
+
+    private boolean enqueue(ModInfo mod) {
+        String hash = mod.getHash();
+        if (hash == null || hash.trim().isEmpty() || mod.getDigestAlgorithm() == null
+            || mod.getSources().isEmpty() || store.contains(hash)) {
+            // Unverifiable content is never shared, and cached content needs no transfer
+            return false;
+        }
+        synchronized (this) {
+            if (states.containsKey(mod)) {
+                return false;
+            }
+            states.put(mod, State.QUEUED);
+        }
+        pool.submitBackground(this, mod, this::fetch);
+        return true;
+    }
+
+    /**
+     * Stop speculating once the user has chosen. Queued prefetches are dropped and running ones
+     * for unselected mods are aborted; running ones for selected mods are allowed to finish.
+     * @return the outcome, and a future completed once no selected mod is still being prefetched,
+     *         after which the selection can be installed from the cache
+     */
+    public CompletableFuture<Report> finish(Collection<ModInfo> selected) {
+        pool.removePending(this);
+        CompletableFuture<Void> ready;
+        synchronized (this) {
+            selection = new HashSet<>(selected);
+            for (Map.Entry<ModInfo, State> entry : states.entrySet()) {
+                if (entry.getValue() == State.QUEUED
+                    || (entry.getValue() == State.RUNNING && !selection.contains(entry.getKey()))) {
+                    abandonedCount++;
+                }
+            }
+            settled = new CompletableFuture<>();
+            ready = settled;
+        }
+        completeIfSettled();
+        return ready.thenApply(ignored -> report());
+    }
+
+    private synchronized Report report() {
+        int prefetched = 0;
+        long prefetchedBytes = 0;
+        int used = 0;
+        long usedBytes = 0;
+        for (Map.Entry<ModInfo, State> entry : states.entrySet()) {
+            if (entry.getValue() == State.CACHED) {
+                long bytes = cachedBytes.getOrDefault(entry.getKey(), 0L);
+                prefetched++;
+                prefetchedBytes += bytes;
+                if (selection.contains(entry.getKey())) {
+                    used++;
+                    usedBytes += bytes;
+                }
+            }
+        }
+        return new Report(prefetched, prefetchedBytes, used, usedBytes, abandonedCount);
+    }
+
+    /**
+     * Complete the settle future once the selection no longer waits on a running prefetch.
+     * Called without the lock held, since completing runs the caller's continuation.
+     */
+    private void completeIfSettled() {
+        CompletableFuture<Void> ready;
+        synchronized (this) {
+            if (settled == null || settled.isDone()) {
+                return;
+            }
+            for (ModInfo mod : selection) {
+                if (states.get(mod) == State.RUNNING) {
+                    return;
+                }
+            }
+            ready = settled;
+        }
+        ready.complete(null);
+    }
+
+    private synchronized boolean isWanted(ModInfo mod) {
+        return selection == null || selection.contains(mod);
+    }
+
+    /**
+     * Download one candidate into the holding directory and move it into the shared cache
+     */
+    private void fetch(ModInfo mod, String source) {
+        synchronized (this) {
+            if (selection != null) {
+                return;
+            }
+            states.put(mod, State.RUNNING);
+        }
+
+        Path holdingFile = holdingDir.resolve(mod.getHash().toLowerCase() + HOLDING_SUFFIX);
+        long[] reserved = {0};
+        boolean cached = false;
+        try {
+            Files.createDirectories(holdingDir);
+            boolean downloaded = FileDownloader.downloadFromSources(mod, source, holdingFile, (bytesRead, totalBytes) -> {
+                if (!isWanted(mod)) {
+                    throw new IllegalStateException("prefetch no longer needed");
+                }
+                if (reserved[0] == 0 && totalBytes > 0 && !reserve(totalBytes)) {
+                    throw new IllegalStateException("prefetch budget of " + FileDownloader.formatBytes(MAX_BYTES) + " used up");
+                }
+                reserved[0] = Math.max(reserved[0], totalBytes);
+            });
+
+            if (downloaded) {
+                long size = Files.size(holdingFile);
+                store.put(holdingFile, mod.getHash(), true);
+                cached = store.contains(mod.getHash());
+                if (cached) {
+                    synchronized (this) {
+                        cachedBytes.put(mod, size);
+                    }
+                    SyncLog.info("Prefetched into shared cache: " + mod.getFriendlyName());
+                }
+            } else {
+                // A speculative download is not resumed; the real one starts from scratch if needed
+                new PartialDownload(holdingFile).discard();
+            }
+        } catch (IOException e) {
+            SyncLog.error("Prefetch of " + mod.getFriendlyName() + " failed: " + e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(holdingFile);
+            } catch (IOException e) {
+                SyncLog.error("Failed to remove prefetch holding file: " + e.getMessage());
+            }
+            HashIndex.getInstance().remove(holdingFile);
+            synchronized (this) {
+                if (!cached) {
+                    reservedBytes -= reserved[0];
+                }
+                states.put(mod, cached ? State.CACHED : State.FAILED);
+            }
+            completeIfSettled();
+        }
+    }
+
+    private synchronized boolean reserve(long bytes) {
+        if (reservedBytes + bytes > MAX_BYTES) {
+            return false;
+        }
+        reservedBytes += bytes;
+        return true;
+    }
+}
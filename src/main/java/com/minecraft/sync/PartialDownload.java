@@ -0,0 +1,164 @@
+package com.minecraft.sync;
+
+import com.google.gson.Gson;
+
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Sidecar state for an interrupted download.
+ * Data goes to "<target>.part"; "<target>.part.meta" records the URL, validators,
+ * expected hash and bytes written so a later attempt can resume with a Range request.
+ */
+class PartialDownload {
+
+    static final String PART_SUFFIX = ".part";
+    static final String META_SUFFIX = ".part.meta";
+
+    private static final Gson gson = new Gson();
+
+    /**
+     * Persisted metadata record
+     */
+    private static class Meta {
+        String url;
+        String etag;
+        String lastModified;
+        String expectedHash;
+        long bytesWritten;
+    }
+
+    private final Path partFile;
+    private final Path metaFile;
+    private Meta meta = new Meta();
+
+    PartialDownload(Path targetFile) {
+        String name = targetFile.getFileName().toString();
+        this.partFile = targetFile.resolveSibling(name + PART_SUFFIX);
+        this.metaFile = targetFile.resolveSibling(name + META_SUFFIX);
+    }
+
+    /**
+     * Check whether a file name belongs to download bookkeeping rather than content
+     */
+    static boolean isSidecarFile(Path file) {
+        String name = file.getFileName().toString();
+        return name.endsWith(PART_SUFFIX) || name.endsWith(META_SUFFIX);
+    }
+
+    Path getPartFile() {
+        return partFile;
+    }
+
+    boolean hasPartFile() {
+        return Files.exists(partFile);
+    }
+
+    /**
+     * Determine how many bytes of an earlier attempt can be resumed for this URL and hash
+     * @return resumable byte count, or 0 if the download has to start from scratch
+     */
+    long resumableBytes(String url, String expectedHash) {
+        try {
+            if (!Files.exists(partFile) || !Files.exists(metaFile)) {
+                return 0;
+            }
+
+            Meta stored;
+            try (Reader reader = Files.newBufferedReader(metaFile, StandardCharsets.UTF_8)) {
+                stored = gson.fromJson(reader, Meta.class);
+            }
+            if (stored == null || !Objects.equals(normalizeHash(stored.expectedHash), normalizeHash(expectedHash))) {
+                return 0;
+            }
+            if (!Objects.equals(stored.url, url)) {
+                // Another mirror of the same content; the final hash check guards the joined file,
+                // but the other server's validators mean nothing here
+                if (normalizeHash(expectedHash) == null) {
+                    return 0;
+                }
+                stored.url = url;
+                stored.etag = null;
+                stored.lastModified = null;
+            }
+
+            // Without a validator or a hash we could not detect a changed resource
+            if (stored.etag == null && stored.lastModified == null && normalizeHash(expectedHash) == null) {
+                return 0;
+            }
+
+            meta = stored;
+            return Files.size(partFile);
+        } catch (Exception e) {
+            SyncLog.error("Ignoring unreadable partial download state: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Value for the If-Range header so a changed resource is sent in full instead of as a range
+     */
+    String getIfRangeValidator() {
+        if (meta.etag != null && !meta.etag.startsWith("W/")) {
+            return meta.etag;
+        }
+        return meta.lastModified;
+    }
+
+    /**
+     * Start a fresh record for a new response
+     */
+    void begin(String url, String etag, String lastModified, String expectedHash) {
+        meta = new Meta();
+        meta.url = url;
+        meta.etag = etag;
+        meta.lastModified = lastModified;
+        meta.expectedHash = normalizeHash(expectedHash);
+    }
+
+    /**
+     * Persist the current progress so the next attempt can resume from it
+     */
+    void save(long bytesWritten) {
+        meta.bytesWritten = bytesWritten;
+        try (Writer writer = Files.newBufferedWriter(metaFile, StandardCharsets.UTF_8)) {
+            gson.toJson(meta, writer);
+        } catch (Exception e) {
+            SyncLog.error("Failed to save partial download state: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Remove both the data and metadata sidecars
+     */
+    void discard() {
+        try {
+            Files.deleteIfExists(partFile);
+            Files.deleteIfExists(metaFile);
+        } catch (Exception e) {
+            SyncLog.error("Failed to clean up partial download: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Remove the metadata once the part file has been promoted to the target
+     */
+    void discardMeta() {
+        try {
+            Files.deleteIfExists(metaFile);
+        } catch (Exception e) {
+            SyncLog.error("Failed to remove partial download state: " + e.getMessage());
+        }
+    }
+
+    private static String normalizeHash(String hash) {
+        if (hash == null || hash.trim().isEmpty()) {
+            return null;
+        }
+        return hash.trim().toLowerCase();
+    }
+}
@@ -0,0 +1,219 @@
+package com.minecraft.sync;
+
+/**
+ * Aggregated progress of a batch of downloads.
+ * Workers report bytes through the Transfer callbacks as often as they like; displays call
+ * sample() at their own fixed refresh rate, so the reporting rate never reaches the UI.
+ * Throughput is measured on this model's own transfers, so batches running side by side each
+ * show their own rate. Only growth after a transfer's first report counts as received, which
+ * keeps resumed prefixes out of the rate; items served without a transfer report no bytes.
+ */
+public class ProgressModel {
+
+    // Time constant of the smoothed throughput; longer is steadier but slower to react
+    private static final double SMOOTHING_SECONDS = 3.0;
+
+    /**
+     * Point-in-time view of the progress, safe to hand to another thread
+     */
+    public static class Snapshot {
+        private final int itemsDone;
+        private final int itemsTotal;
+        private final int activeTransfers;
+        private final long bytesDone;
+        private final long bytesTotal;
+        private final double instantRate;
+        private final double smoothedRate;
+        private final long etaSeconds;
+
+        Snapshot(int itemsDone, int itemsTotal, int activeTransfers, long bytesDone, long bytesTotal,
+                 double instantRate, double smoothedRate, long etaSeconds) {
+            this.itemsDone = itemsDone;
+            this.itemsTotal = itemsTotal;
+            this.activeTransfers = activeTransfers;
+            this.bytesDone = bytesDone;
+            this.bytesTotal = bytesTotal;
+            this.instantRate = instantRate;
+            this.smoothedRate = smoothedRate;
+            this.etaSeconds = etaSeconds;
+        }
+
+        public int getItemsDone() { return itemsDone; }
+        public int getItemsTotal() { return itemsTotal; }
+        public int getActiveTransfers() { return activeTransfers; }
+        public long getBytesDone() { return bytesDone; }
+        /** Estimated size of the whole batch, or -1 while nothing is known about sizes */
+        public long getBytesTotal() { return bytesTotal; }
+        /** Bytes per second since the previous sample */
+        public double getInstantRate() { return instantRate; }
+        /** Exponentially smoothed bytes per second */
+        public double getSmoothedRate() { return smoothedRate; }
+        /** Estimated seconds remaining, or -1 if unknown */
+        public long getEtaSeconds() { return etaSeconds; }
+
+        /**
+         * Completed fraction in [0, 1], by bytes when sizes are known and by items otherwise
+         */
+        public double getFraction() {
+            if (bytesTotal > 0) {
+                return Math.min(1.0, (double) bytesDone / bytesTotal);
+            }
+            return itemsTotal > 0 ? (double) itemsDone / itemsTotal : 0;
+        }
+    }
+
+    /**
+     * Progress of one item; pass it to FileDownloader as the progress callback.
+     * Reports may arrive from several segment threads at once and out of order, and a retry
+     * that restarts the file reports from zero again, so progress only ever moves forward.
+     */
+    public class Transfer implements FileDownloader.ProgressCallback {
+        private long done;
+        private long total = -1;
+        private boolean reported;
+        private boolean finished;
+
+        @Override
+        public void onProgress(long bytesRead, long totalBytes) {
+            synchronized (ProgressModel.this) {
+                if (finished) {
+                    return;
+                }
+                long advanced = Math.max(0, bytesRead - done);
+                if (reported) {
+                    bytesReceived += advanced;
+                }
+                reported = true;
+                bytesDone += advanced;
+                if (total >= 0) {
+                    activeKnownTotal -= total;
+                    activeKnownDone -= done;
+                    activeSized--;
+                }
+                done += advanced;
+                if (totalBytes >= 0) {
+                    total = totalBytes;
+                }
+                if (total >= 0) {
+                    activeKnownTotal += total;
+                    activeKnownDone += done;
+                    activeSized++;
+                }
+            }
+        }
+
+        /**
+         * Mark the item complete, whether it was transferred, already present or failed
+         */
+        public void finish() {
+            synchronized (ProgressModel.this) {
+                if (finished) {
+                    return;
+                }
+                finished = true;
+                if (total >= 0) {
+                    activeKnownTotal -= total;
+                    activeKnownDone -= done;
+                    activeSized--;
+                }
+                active--;
+                itemsDone++;
+                finishedBytes += done;
+            }
+        }
+    }
+
+    // Counters, guarded by this
+    private int itemsTotal;
+    private int itemsDone;
+    private int active;
+    private int activeSized;
+    private long bytesDone;
+    private long bytesReceived;
+    private long finishedBytes;
+    private long activeKnownTotal;
+    private long activeKnownDone;
+
+    // Sampling state, guarded by this
+    private long lastSampleNanos = -1;
+    private long lastSampleBytes;
+    private double smoothedRate;
+
+    /**
+     * Add items to the expected total
+     */
+    public synchronized void addItems(int count) {
+        itemsTotal += count;
+    }
+
+    /**
+     * Remove items that will never start, e.g. after a cancel
+     */
+    public synchronized void removeItems(int count) {
+        itemsTotal = Math.max(itemsDone + active, itemsTotal - count);
+    }
+
+    /**
+     * Begin reporting one item
+     */
+    public synchronized Transfer startTransfer() {
+        active++;
+        return new Transfer();
+    }
+
+    /**
+     * Take a snapshot and update the throughput estimate; meant to be called at a steady rate
+     */
+    public synchronized Snapshot sample() {
+        long now = System.nanoTime();
+        long received = bytesReceived;
+        double instantRate = 0;
+        if (lastSampleNanos >= 0 && now > lastSampleNanos) {
+            double seconds = (now - lastSampleNanos) / 1e9;
+            instantRate = (received - lastSampleBytes) / seconds;
+            // Weight by elapsed time so irregular sampling does not skew the average
+            double alpha = 1 - Math.exp(-seconds / SMOOTHING_SECONDS);
+            smoothedRate = smoothedRate == 0 ? instantRate : smoothedRate + alpha * (instantRate - smoothedRate);
+        }
+        lastSampleNanos = now;
+        lastSampleBytes = received;
+
+        long remaining = estimateRemainingBytes();
+        long bytesTotal = remaining >= 0 ? bytesDone + remaining : -1;
+        long eta = remaining >= 0 && smoothedRate > 0 ? (long) Math.ceil(remaining / smoothedRate) : -1;
+        return new Snapshot(itemsDone, itemsTotal, active, bytesDone, bytesTotal, instantRate, smoothedRate, eta);
+    }
+
+    /**
+     * Bytes still to come: the known rest of running transfers, plus queued and unsized items
+     * at the average size of the items finished so far (already present items count as zero)
+     */
+    private long estimateRemainingBytes() {
+        int unsized = itemsTotal - itemsDone - activeSized;
+        if (unsized <= 0) {
+            return activeKnownTotal - activeKnownDone;
+        }
+        double averageItemBytes;
+        if (itemsDone > 0) {
+            averageItemBytes = (double) finishedBytes / itemsDone;
+        } else if (activeSized > 0) {
+            averageItemBytes = (double) activeKnownTotal / activeSized;
+        } else {
+            return -1;
+        }
+        return activeKnownTotal - activeKnownDone + (long) (unsized * averageItemBytes);
+    }
+
+    /**
+     * Format seconds as m:ss, or h:mm:ss for long durations
+     */
+    public static String formatDuration(long seconds) {
+        if (seconds < 0) {
+            return "--:--";
+        }
+        if (seconds >= 3600) {
+            return String.format("%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+        }
+        return String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+}
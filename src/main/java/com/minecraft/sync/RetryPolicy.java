@@ -0,0 +1,311 @@
+package com.minecraft.sync;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.file.FileSystemException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Retries idempotent requests that failed for transient reasons.
+ * Connection errors, timeouts and 408/429/5xx responses are retried up to maxAttempts times
+ * with capped exponential backoff and jitter, or after the server's Retry-After if that
+ * is longer. Each host has a CircuitBreaker, so once a host is down the remaining items for
+ * it stop sending requests instead of each one running through its own retries and timeouts.
+ * Items that can fail over to another source skip the host at once; the others wait for the
+ * breaker's trial request, up to the same limit as a server's Retry-After.
+ */
+public class RetryPolicy {
+
+    private static final int MAX_ATTEMPTS = Integer.getInteger("mcsync.retry.attempts", 4);
+    private static final long BASE_DELAY_MILLIS = Long.getLong("mcsync.retry.baseMillis", 500);
+    private static final long MAX_DELAY_MILLIS = Long.getLong("mcsync.retry.maxMillis", 15000);
+    // A server asking for a longer pause than this is treated as not coming back soon; it
+    // also bounds how long an operation waits for a host whose breaker is open
+    private static final long MAX_RETRY_AFTER_MILLIS = Long.getLong("mcsync.retry.maxWaitMillis", 60000);
+    private static final int BREAKER_THRESHOLD = Integer.getInteger("mcsync.breaker.threshold", 5);
+    private static final long BREAKER_COOLDOWN_MILLIS = Long.getLong("mcsync.breaker.cooldownMillis", 30000);
+
+    private static final RetryPolicy instance = new RetryPolicy();
+
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicInteger retries = new AtomicInteger();
+    private final AtomicInteger recovered = new AtomicInteger();
+    private final AtomicInteger exhausted = new AtomicInteger();
+
+    /**
+     * One attempt of the operation; throw IOException to report a failure
+     */
+    public interface Attempt<T> {
+        T run() throws IOException;
+    }
+
+    /**
+     * Thrown without contacting the host while its circuit breaker is open
+     */
+    public static class CircuitOpenException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        CircuitOpenException(String host) {
+            super("Host " + (host.isEmpty() ? "(unknown)" : host) + " is unavailable, request skipped");
+        }
+    }
+
+    public static RetryPolicy getInstance() {
+        return instance;
+    }
+
+    private RetryPolicy() {
+    }
+
+    /**
+     * Run an operation against a URL, retrying transient failures
+     * @param what short description for log lines
+     * @return the result of the first successful attempt
+     * @throws IOException the last failure once retries are used up or the failure is permanent
+     */
+    public <T> T execute(String url, String what, Attempt<T> attempt) throws IOException {
+        return execute(url, what, MAX_ATTEMPTS, false, attempt);
+    }
+
+    /**
+     * Run an operation with a custom attempt limit, e.g. fewer when another mirror can take over
+     * @param failFast skip the host at once while its breaker is open, for callers that have
+     *                 another source; otherwise wait for the host to be tried again
+     */
+    public <T> T execute(String url, String what, int maxAttempts, boolean failFast, Attempt<T> attempt) throws IOException {
+        CircuitBreaker breaker = getBreaker(hostKey(url));
+        long waitBudget = MAX_RETRY_AFTER_MILLIS;
+        for (int attemptNumber = 1; ; attemptNumber++) {
+            boolean allowed = breaker.allowRequest();
+            if (!allowed && !failFast && waitBudget > 0) {
+                SyncLog.info("Host " + breaker.getHost() + " is paused, " + what + " waits for it to be tried again");
+                long waitStart = System.currentTimeMillis();
+                try {
+                    allowed = breaker.awaitRequest(waitBudget);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for " + breaker.getHost());
+                }
+                waitBudget -= System.currentTimeMillis() - waitStart;
+            }
+            if (!allowed) {
+                CircuitOpenException e = new CircuitOpenException(breaker.getHost());
+                SyncLog.error("Skipping " + what + ": " + e.getMessage());
+                throw e;
+            }
+            try {
+                T result = attempt.run();
+                breaker.recordSuccess();
+                if (attemptNumber > 1) {
+                    recovered.incrementAndGet();
+                }
+                return result;
+            } catch (IOException e) {
+                boolean retryable = isRetryable(e);
+                recordOutcome(breaker, e, retryable);
+                if (!retryable) {
+                    throw e;
+                }
+                failures.incrementAndGet();
+                if (attemptNumber >= maxAttempts) {
+                    exhausted.incrementAndGet();
+                    SyncLog.error("Giving up on " + what + " after " + attemptNumber + " attempts: " + describe(e));
+                    throw e;
+                }
+                long retryAfter = retryAfterMillis(e);
+                if (retryAfter > MAX_RETRY_AFTER_MILLIS) {
+                    exhausted.incrementAndGet();
+                    SyncLog.error("Server asked to wait " + retryAfter / 1000 + "s before retrying " + what + ", giving up");
+                    throw e;
+                }
+                long delay = Math.max(backoffMillis(attemptNumber), retryAfter);
+                retries.incrementAndGet();
+                SyncLog.info(String.format("Retrying %s in %.1fs (attempt %d/%d): %s",
+                    what, delay / 1000.0, attemptNumber + 1, maxAttempts, describe(e)));
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting to retry " + what);
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether requests to a host (as returned by hostKey) are currently let through
+     */
+    public boolean isAvailable(String host) {
+        CircuitBreaker breaker = breakers.get(host);
+        return breaker == null || !breaker.isOpen();
+    }
+
+    /**
+     * Timeouts, connection failures and server-side errors are transient; other statuses,
+     * interruptions, local file system errors and an open breaker are not
+     */
+    static boolean isRetryable(IOException e) {
+        if (e instanceof CircuitOpenException || e instanceof LocalFileException || e instanceof FileSystemException) {
+            return false;
+        }
+        if (e instanceof HttpStatusException) {
+            return isRetryableStatus(((HttpStatusException) e).getStatusCode());
+        }
+        return !(e instanceof InterruptedIOException) || e instanceof SocketTimeoutException;
+    }
+
+    static boolean isRetryableStatus(int statusCode) {
+        return statusCode == 408 || statusCode == 425 || statusCode == 429 || statusCode == 500
+            || statusCode == 502 || statusCode == 503 || statusCode == 504;
+    }
+
+    /**
+     * Tell the breaker whether the host itself looks unhealthy
+     */
+    private static void recordOutcome(CircuitBreaker breaker, IOException e, boolean retryable) {
+        if (e instanceof HttpStatusException && ((HttpStatusException) e).getStatusCode() == 429) {
+            // Throttling says the host is up but busy; Retry-After paces us instead
+            breaker.recordIgnored();
+        } else if (retryable) {
+            breaker.recordFailure();
+        } else if (e instanceof HttpStatusException) {
+            breaker.recordSuccess();
+        } else {
+            breaker.recordIgnored();
+        }
+    }
+
+    /**
+     * Random delay between half and all of the capped exponential bound, so items that
+     * failed together do not retry together
+     */
+    private static long backoffMillis(int attemptNumber) {
+        long bound = BASE_DELAY_MILLIS << Math.min(attemptNumber - 1, 20);
+        bound = Math.min(MAX_DELAY_MILLIS, bound);
+        return ThreadLocalRandom.current().nextLong(bound / 2, bound + 1);
+    }
+
+    /**
+     * Delay requested by a Retry-After header, given in seconds or as an HTTP date; 0 if none
+     */
+    static long retryAfterMillis(IOException e) {
+        if (!(e instanceof HttpStatusException)) {
+            return 0;
+        }
+        String value = ((HttpStatusException) e).getRetryAfter();
+        if (value == null || value.trim().isEmpty()) {
+            return 0;
+        }
+        value = value.trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000);
+        } catch (NumberFormatException ignored) {
+            // Not delta-seconds, try an HTTP date
+        }
+        try {
+            ZonedDateTime at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(at.getZone()), at).toMillis());
+        } catch (DateTimeParseException ignored) {
+            return 0;
+        }
+    }
+
+    /**
+     * Some connection failures carry no message, only their type
+     */
+    private static String describe(IOException e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
+    private CircuitBreaker getBreaker(String host) {
+        return breakers.computeIfAbsent(host, h -> new CircuitBreaker(h, BREAKER_THRESHOLD, BREAKER_COOLDOWN_MILLIS));
+    }
+
+    /**
+     * Host and explicit port; services on different ports of one host fail independently
+     */
+    static String hostKey(String url) {
+        try {
+            URI uri = URI.create(url.trim());
+            if (uri.getHost() == null) {
+                return "";
+            }
+            String host = uri.getHost().toLowerCase();
+            return uri.getPort() >= 0 ? host + ":" + uri.getPort() : host;
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    /**
+     * Attempts per operation unless the caller asks for fewer
+     */
+    public int getMaxAttempts() {
+        return MAX_ATTEMPTS;
+    }
+
+    /**
+     * Attempts that failed for a transient reason (timeouts, connection errors, throttling and
+     * server errors), whether or not they were tried again
+     */
+    public int getTransientFailureCount() {
+        return failures.get();
+    }
+
+    /**
+     * Failed attempts that were tried again
+     */
+    public int getRetryCount() {
+        return retries.get();
+    }
+
+    /**
+     * Operations that succeeded after at least one retry
+     */
+    public int getRecoveredCount() {
+        return recovered.get();
+    }
+
+    /**
+     * Operations that still failed after their retries
+     */
+    public int getExhaustedCount() {
+        return exhausted.get();
+    }
+
+    /**
+     * Snapshot of the per-host breakers, sorted by host
+     */
+    public Map<String, CircuitBreaker> getBreakers() {
+        return Collections.unmodifiableMap(new TreeMap<>(breakers));
+    }
+
+    /**
+     * Retry totals, and one line per host whose breaker opened at some point
+     */
+    public String describeStats() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("  %d retr%s, %d recovered, %d gave up%n", getRetryCount(),
+            getRetryCount() == 1 ? "y" : "ies", getRecoveredCount(), getExhaustedCount()));
+        getBreakers().forEach((host, breaker) -> {
+            if (breaker.getTrips() > 0) {
+                sb.append(String.format("  %s: circuit %s, opened %d time(s), %d request(s) skipped%n",
+                    host.isEmpty() ? "(unknown)" : host, breaker.getState().name().toLowerCase(),
+                    breaker.getTrips(), breaker.getRejected()));
+            }
+        });
+        return sb.toString();
+    }
+}
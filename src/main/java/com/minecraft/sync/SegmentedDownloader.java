@@ -0,0 +1,228 @@
+package com.minecraft.sync;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Multi-segment parallel fetch for large single files.
+ * Splits a file into byte ranges, fetches them concurrently and writes each range
+ * straight into a preallocated FileChannel at its offset.
+ */
+class SegmentedDownloader {
+
+    // Files at or above this size are fetched in segments (default 32 MB)
+    static final long SEGMENT_THRESHOLD = Long.getLong("mcsync.segment.threshold", 32L * 1024 * 1024);
+    static final int SEGMENT_COUNT = Integer.getInteger("mcsync.segment.count", 4);
+
+    // Segments smaller than this are not worth an extra connection
+    private static final long MIN_SEGMENT_SIZE = 4L * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final AtomicInteger threadCounter = new AtomicInteger(1);
+    private static final ExecutorService segmentPool = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "segment-worker-" + threadCounter.getAndIncrement());
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Result of probing a URL for segmented download support
+     */
+    static class Probe {
+        final long contentLength;
+        final String validator;
+
+        Probe(long contentLength, String validator) {
+            this.contentLength = contentLength;
+            this.validator = validator;
+        }
+    }
+
+    /**
+     * Only large-asset catalogs are probed; mod jars and configs are small enough
+     * that an extra HEAD round-trip would cost more than it saves.
+     */
+    static boolean isCandidate(ModInfo modInfo) {
+        String catalog = modInfo.getCatelog();
+        return catalog != null
+            && ("resourcepacks".equalsIgnoreCase(catalog) || "shaderpacks".equalsIgnoreCase(catalog));
+    }
+
+    /**
+     * Issue a HEAD request and decide whether the resource should be fetched in segments
+     * @return probe result, or null if the file is small or the server does not support ranges
+     */
+    static Probe probe(String urlStr) {
+        try (HttpTransport.Response response = HttpTransport.getInstance().head(urlStr, null)) {
+            if (response.getStatusCode() != 200) {
+                return null;
+            }
+
+            long length = response.getContentLength();
+            String acceptRanges = response.getHeader("Accept-Ranges");
+            if (length < SEGMENT_THRESHOLD || acceptRanges == null || !acceptRanges.toLowerCase().contains("bytes")) {
+                return null;
+            }
+
+            String etag = response.getHeader("ETag");
+            String validator = (etag != null && !etag.startsWith("W/")) ? etag : response.getHeader("Last-Modified");
+            return new Probe(length, validator);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Fetch all segments into the given file and return the digest of the assembled content
+     */
+    static String download(String urlStr, Probe probe, Path partFile,
+                           FileDownloader.ProgressCallback progressCallback, DigestAlgorithm algorithm) throws IOException {
+        long total = probe.contentLength;
+        int segments = (int) Math.max(1, Math.min(SEGMENT_COUNT, total / MIN_SEGMENT_SIZE));
+        long segmentSize = (total + segments - 1) / segments;
+        AtomicLong bytesDone = new AtomicLong();
+
+        SyncLog.info("Segmented download: " + partFile.getFileName() + " in " + segments + " ranges");
+
+        FileChannel opened;
+        try {
+            opened = FileChannel.open(partFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.READ, StandardOpenOption.TRUNCATE_EXISTING);
+            // Preallocate so every segment can write at its own offset
+            opened.write(ByteBuffer.allocate(1), total - 1);
+        } catch (IOException e) {
+            throw new LocalFileException("Cannot create " + partFile.getFileName(), e);
+        }
+
+        try (FileChannel channel = opened) {
+            // Segments report from their own threads; start the count from zero first
+            if (progressCallback != null) {
+                progressCallback.onProgress(0, total);
+            }
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < segments; i++) {
+                long start = i * segmentSize;
+                long end = Math.min(total, start + segmentSize) - 1;
+                futures.add(segmentPool.submit(() -> {
+                    fetchRange(urlStr, probe.validator, start, end, channel, bytesDone, total, progressCallback);
+                    return null;
+                }));
+            }
+
+            try {
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (ExecutionException e) {
+                futures.forEach(f -> f.cancel(true));
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                // A progress callback stopping the transfer is not a transport failure; let the
+                // caller see it as such instead of as a retryable IOException
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IOException(cause);
+            } catch (InterruptedException e) {
+                futures.forEach(f -> f.cancel(true));
+                Thread.currentThread().interrupt();
+                InterruptedIOException interrupted = new InterruptedIOException("Segmented download interrupted");
+                interrupted.initCause(e);
+                throw interrupted;
+            }
+
+            try {
+                return digestChannel(channel, algorithm);
+            } catch (IOException e) {
+                throw new LocalFileException("Cannot read " + partFile.getFileName(), e);
+            }
+        }
+    }
+
+    private static void fetchRange(String urlStr, String validator, long start, long end, FileChannel channel,
+                                   AtomicLong bytesDone, long total,
+                                   FileDownloader.ProgressCallback progressCallback) throws IOException {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Accept", "*/*");
+        headers.put("Range", "bytes=" + start + "-" + end);
+        if (validator != null) {
+            headers.put("If-Range", validator);
+        }
+
+        try (HttpTransport.Response response = HttpTransport.getInstance().get(urlStr, headers)) {
+            int responseCode = response.getStatusCode();
+            if (responseCode != 206) {
+                // A 200 here means the resource changed since the probe or ranges were refused
+                throw HttpStatusException.of("Range request failed with status " + responseCode, response);
+            }
+            String contentRange = response.getHeader("Content-Range");
+            if (contentRange == null || !contentRange.startsWith("bytes " + start + "-")) {
+                throw new IOException("Unexpected Content-Range: " + contentRange);
+            }
+
+            long position = start;
+            byte[] buffer = new byte[BUFFER_SIZE];
+            InputStream in = response.getBody();
+            BandwidthLimiter limiter = BandwidthLimiter.getInstance();
+            int bytesRead;
+            while (position <= end && (bytesRead = in.read(buffer, 0, (int) Math.min(buffer.length, end - position + 1))) != -1) {
+                limiter.acquire(bytesRead);
+                ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, bytesRead);
+                try {
+                    while (chunk.hasRemaining()) {
+                        position += channel.write(chunk, position);
+                    }
+                } catch (IOException e) {
+                    throw new LocalFileException("Cannot write segment " + start + "-" + end, e);
+                }
+                long done = bytesDone.addAndGet(bytesRead);
+                if (progressCallback != null) {
+                    progressCallback.onProgress(done, total);
+                }
+            }
+
+            if (position != end + 1) {
+                throw new IOException("Segment " + start + "-" + end + " ended early at " + position);
+            }
+        }
+    }
+
+    /**
+     * Segments arrive out of order, so the digest is computed over the assembled file
+     */
+    private static String digestChannel(FileChannel channel, DigestAlgorithm algorithm) throws IOException {
+        MessageDigest digest = algorithm.newDigest();
+        ByteBuffer buffer = ByteBuffer.allocate(1024 * 1024);
+        long position = 0;
+        int bytesRead;
+        while ((bytesRead = channel.read(buffer, position)) != -1) {
+            buffer.flip();
+            digest.update(buffer);
+            buffer.clear();
+            position += bytesRead;
+        }
+        return FileDownloader.toHex(digest.digest());
+    }
+}
@@ -0,0 +1,141 @@
+package com.minecraft.sync;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * Runs sync stages as a dependency graph instead of a fixed chain.
+ * Every stage starts as soon as the stages it depends on have finished, so independent
+ * stages overlap. The runner starts a stage and returns a future that completes when the
+ * stage is done; a stage that fails still counts as finished so its dependents are not stuck.
+ */
+public class StageExecutor {
+
+    /**
+     * Receives stage transitions; called on whichever thread completed the previous stage
+     */
+    public interface Listener {
+        void onStageStarted(SyncStage stage);
+        void onStageFinished(SyncStage stage);
+    }
+
+    private final Set<SyncStage> stages;
+    private final Function<SyncStage, CompletionStage<?>> runner;
+    private final Listener listener;
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+    // Guarded by this
+    private final EnumSet<SyncStage> started = EnumSet.noneOf(SyncStage.class);
+    private final EnumSet<SyncStage> finished = EnumSet.noneOf(SyncStage.class);
+    private boolean cancelled = false;
+
+    /**
+     * @param stages stages to run; dependencies outside this set are ignored
+     * @param runner starts a stage and returns a future completed when it is done
+     * @param listener receives stage transitions, may be null
+     */
+    public StageExecutor(Collection<SyncStage> stages, Function<SyncStage, CompletionStage<?>> runner, Listener listener) {
+        this.stages = stages.isEmpty() ? EnumSet.noneOf(SyncStage.class) : EnumSet.copyOf(stages);
+        this.runner = runner;
+        this.listener = listener;
+    }
+
+    /**
+     * Start every stage that has no pending dependencies
+     * @return a future completed once all stages have finished
+     */
+    public CompletableFuture<Void> start() {
+        if (stages.isEmpty()) {
+            completion.complete(null);
+        } else {
+            launchReady();
+        }
+        return completion;
+    }
+
+    /**
+     * Start no further stages; running ones finish on their own and the completion future
+     * is cancelled
+     */
+    public void cancel() {
+        synchronized (this) {
+            cancelled = true;
+        }
+        completion.cancel(false);
+    }
+
+    /**
+     * Stages started but not finished yet
+     */
+    public synchronized Set<SyncStage> getRunning() {
+        Set<SyncStage> running = EnumSet.copyOf(started);
+        running.removeAll(finished);
+        return running;
+    }
+
+    public synchronized Set<SyncStage> getFinished() {
+        return EnumSet.copyOf(finished);
+    }
+
+    private void launchReady() {
+        List<SyncStage> ready = new ArrayList<>();
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            for (SyncStage stage : stages) {
+                if (started.contains(stage)) {
+                    continue;
+                }
+                Set<SyncStage> waitingFor = stage.getDependencies();
+                waitingFor.retainAll(stages);
+                if (finished.containsAll(waitingFor)) {
+                    started.add(stage);
+                    ready.add(stage);
+                }
+            }
+        }
+
+        for (SyncStage stage : ready) {
+            if (listener != null) {
+                listener.onStageStarted(stage);
+            }
+            CompletionStage<?> result;
+            try {
+                result = runner.apply(stage);
+            } catch (RuntimeException e) {
+                CompletableFuture<Void> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                result = failed;
+            }
+            result.whenComplete((value, error) -> {
+                if (error != null) {
+                    SyncLog.error("Stage " + stage.getCliName() + " failed: " + error.getMessage());
+                }
+                stageFinished(stage);
+            });
+        }
+    }
+
+    private void stageFinished(SyncStage stage) {
+        boolean allFinished;
+        synchronized (this) {
+            finished.add(stage);
+            allFinished = finished.size() == stages.size();
+        }
+        if (listener != null) {
+            listener.onStageFinished(stage);
+        }
+        if (allFinished) {
+            completion.complete(null);
+        } else {
+            launchReady();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.minecraft.sync;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Log pipeline for the download path and the GUI log view.
+ * Callers only enqueue on a lock-free queue, so worker threads never wait on the console,
+ * a log file or the EDT. A single flusher thread drains the queue in batches a few times a
+ * second and writes each batch once to the console, to the view sink and, if configured
+ * with -Dmcsync.log.file=&lt;path&gt;, to a log file that rolls over at mcsync.log.maxBytes.
+ */
+public class SyncLog {
+
+    private static final long FLUSH_INTERVAL_MILLIS = 200;
+    private static final long DEFAULT_MAX_FILE_BYTES = 1024 * 1024;
+    private static final int ROLLED_FILES = 3;
+
+    private enum Target {
+        OUT,    // Console output
+        ERR,    // Console errors
+        VIEW    // GUI log view
+    }
+
+    private static class Entry {
+        final long time;
+        final Target target;
+        final String text;
+
+        Entry(long time, Target target, String text) {
+            this.time = time;
+            this.target = target;
+            this.text = text;
+        }
+    }
+
+    private static final SyncLog instance = new SyncLog();
+
+    private final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final Object flushLock = new Object();
+    private volatile Consumer<List<String>> viewSink;
+
+    // Rolling file, guarded by flushLock
+    private final Path logFile;
+    private final long maxFileBytes;
+    private BufferedWriter fileWriter;
+    private long fileBytes;
+
+    private SyncLog() {
+        String file = System.getProperty("mcsync.log.file");
+        this.logFile = file != null && !file.trim().isEmpty() ? Paths.get(file.trim()) : null;
+        this.maxFileBytes = Long.getLong("mcsync.log.maxBytes", DEFAULT_MAX_FILE_BYTES);
+
+        ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sync-log");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::drain, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::drain, "sync-log-shutdown"));
+    }
+
+    /**
+     * Queue a line for standard output
+     */
+    public static void info(String message) {
+        instance.enqueue(Target.OUT, message);
+    }
+
+    /**
+     * Queue a line for standard error
+     */
+    public static void error(String message) {
+        instance.enqueue(Target.ERR, message);
+    }
+
+    /**
+     * Queue a message for the GUI log view; it may span several lines
+     */
+    public static void view(String message) {
+        instance.enqueue(Target.VIEW, message);
+    }
+
+    /**
+     * Receive view lines in batches, already timestamped; called on the flusher thread
+     */
+    public static void setViewSink(Consumer<List<String>> sink) {
+        instance.viewSink = sink;
+    }
+
+    /**
+     * Write out everything queued so far before returning
+     */
+    public static void flush() {
+        instance.drain();
+    }
+
+    private void enqueue(Target target, String message) {
+        queue.add(new Entry(System.currentTimeMillis(), target, message));
+    }
+
+    private void drain() {
+        synchronized (flushLock) {
+            if (queue.isEmpty()) {
+                return;
+            }
+            StringBuilder out = new StringBuilder();
+            StringBuilder err = new StringBuilder();
+            StringBuilder file = logFile != null ? new StringBuilder() : null;
+            List<String> view = new ArrayList<>();
+            Entry entry;
+            while ((entry = queue.poll()) != null) {
+                // Console errors are flushed before later output so the two streams stay in order
+                if (entry.target == Target.ERR && out.length() > 0) {
+                    System.out.print(out);
+                    out.setLength(0);
+                } else if (entry.target == Target.OUT && err.length() > 0) {
+                    System.err.print(err);
+                    err.setLength(0);
+                }
+                String line = entry.text.endsWith("\n") ? entry.text.substring(0, entry.text.length() - 1) : entry.text;
+                String stamped = entry.target == Target.VIEW || file != null
+                    ? String.format("[%tT] %s", entry.time, line) : null;
+                switch (entry.target) {
+                    case OUT:
+                        out.append(line).append(System.lineSeparator());
+                        break;
+                    case ERR:
+                        err.append(line).append(System.lineSeparator());
+                        break;
+                    default:
+                        view.add(stamped);
+                        break;
+                }
+                if (file != null) {
+                    file.append(stamped).append(System.lineSeparator());
+                }
+            }
+            if (out.length() > 0) {
+                System.out.print(out);
+            }
+            if (err.length() > 0) {
+                System.err.print(err);
+            }
+            Consumer<List<String>> sink = viewSink;
+            if (sink != null && !view.isEmpty()) {
+                sink.accept(view);
+            }
+            if (file != null && file.length() > 0) {
+                writeFile(file.toString());
+            }
+        }
+    }
+
+    /**
+     * Append a batch to the log file, rolling it over first if it would grow past the limit
+     */
+    private void writeFile(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        try {
+            if (fileWriter == null) {
+                Path parent = logFile.toAbsolutePath().getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+                fileBytes = Files.exists(logFile) ? Files.size(logFile) : 0;
+                fileWriter = openFile();
+            }
+            if (fileBytes > 0 && fileBytes + bytes.length > maxFileBytes) {
+                fileWriter.close();
+                roll();
+                fileBytes = 0;
+                fileWriter = openFile();
+            }
+            fileWriter.write(text);
+            fileWriter.flush();
+            fileBytes += bytes.length;
+        } catch (IOException e) {
+            System.err.println("Error writing log file " + logFile + ": " + e.getMessage());
+            // Reopen on the next batch
+            fileWriter = null;
+        }
+    }
+
+    private BufferedWriter openFile() throws IOException {
+        return Files.newBufferedWriter(logFile, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Shift sync.log to sync.log.1, sync.log.1 to sync.log.2 and so on, dropping the oldest
+     */
+    private void roll() throws IOException {
+        for (int i = ROLLED_FILES - 1; i >= 1; i--) {
+            Path older = rolledFile(i);
+            if (Files.exists(older)) {
+                Files.move(older, rolledFile(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(logFile, rolledFile(1), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Path rolledFile(int index) {
+        return logFile.resolveSibling(logFile.getFileName() + "." + index);
+    }
+}
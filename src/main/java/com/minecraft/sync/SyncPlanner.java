@@ -0,0 +1,367 @@
+package com.minecraft.sync;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Dry-run planner for a sync.
+ * Classifies every manifest entry with the same FileStatusType logic the downloader uses,
+ * sizes pending transfers with HEAD requests, and lists files no entry claims.
+ * Nothing is written to disk and no file content is downloaded.
+ */
+public class SyncPlanner {
+
+    private static final int HEAD_CONCURRENCY = 8;
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+
+    /**
+     * What a sync would do with one file
+     */
+    public enum Action {
+        UP_TO_DATE,   // Target exists with the expected hash
+        RENAME,       // Content exists under another name and would be moved
+        UPDATE,       // Target exists with a different hash and would be replaced
+        DOWNLOAD,     // Target is missing and would be downloaded
+        ORPHAN        // File in a catalog directory that no manifest entry claims; left untouched
+    }
+
+    /**
+     * One planned action
+     */
+    public static class Entry {
+        private final Action action;
+        private final String stage;
+        private final String name;
+        private final String target;
+        private final String source;
+        private final String url;
+        private long bytes = -1;
+        private long resumableBytes = 0;
+        private boolean fromSharedCache = false;
+
+        Entry(Action action, String stage, String name, String target, String source, String url) {
+            this.action = action;
+            this.stage = stage;
+            this.name = name;
+            this.target = target;
+            this.source = source;
+            this.url = url;
+        }
+
+        public Action getAction() { return action; }
+        public String getStage() { return stage; }
+        public String getName() { return name; }
+        public String getTarget() { return target; }
+        /** Existing file a RENAME moves from, or null */
+        public String getSource() { return source; }
+        public String getUrl() { return url; }
+        /** Full size from a HEAD request, or -1 if unknown or nothing is transferred */
+        public long getBytes() { return bytes; }
+        /** Bytes already on disk in a resumable .part file */
+        public long getResumableBytes() { return resumableBytes; }
+        /** True if the content is in the host's shared store and would be linked, not downloaded */
+        public boolean isFromSharedCache() { return fromSharedCache; }
+
+        /**
+         * Bytes a sync would actually transfer for this entry, or -1 if unknown
+         */
+        public long getTransferBytes() {
+            if ((action != Action.UPDATE && action != Action.DOWNLOAD) || fromSharedCache) {
+                return 0;
+            }
+            return bytes < 0 ? -1 : Math.max(0, bytes - resumableBytes);
+        }
+    }
+
+    /**
+     * The complete plan and its totals
+     */
+    public static class Plan {
+        private final String apiEndpoint;
+        private final long generatedAt = System.currentTimeMillis();
+        private final List<Entry> actions;
+        private final Map<Action, Integer> counts = new EnumMap<>(Action.class);
+        private final long bytesToTransfer;
+        private final int unknownSizes;
+
+        Plan(String apiEndpoint, List<Entry> actions) {
+            this.apiEndpoint = apiEndpoint;
+            this.actions = actions;
+            for (Action action : Action.values()) {
+                counts.put(action, 0);
+            }
+            long bytes = 0;
+            int unknown = 0;
+            for (Entry entry : actions) {
+                counts.merge(entry.action, 1, Integer::sum);
+                long transfer = entry.getTransferBytes();
+                if (transfer < 0) {
+                    unknown++;
+                } else {
+                    bytes += transfer;
+                }
+            }
+            this.bytesToTransfer = bytes;
+            this.unknownSizes = unknown;
+        }
+
+        public String getApiEndpoint() { return apiEndpoint; }
+        public List<Entry> getActions() { return actions; }
+        public int getCount(Action action) { return counts.getOrDefault(action, 0); }
+        /** Known bytes to transfer; entries with unknown size are excluded */
+        public long getBytesToTransfer() { return bytesToTransfer; }
+        /** Transfers whose size the server did not report */
+        public int getUnknownSizes() { return unknownSizes; }
+
+        /**
+         * Estimated transfer time at the given rate
+         */
+        public double estimateSeconds(double bytesPerSecond) {
+            return bytesPerSecond > 0 ? bytesToTransfer / bytesPerSecond : 0;
+        }
+    }
+
+    /**
+     * Build a plan for the selected items of each stage
+     * @param selected items a sync would process, per stage
+     * @param allEntries every manifest entry; their targets are never reported as orphans
+     */
+    public static Plan build(String apiEndpoint, Map<SyncStage, List<ModInfo>> selected, List<ModInfo> allEntries) {
+        // Planning only reads; keep the hash index from being written back
+        HashIndex.getInstance().setReadOnly(true);
+        Path baseDir = FileDownloader.getBaseDir().toAbsolutePath().normalize();
+        ContentStore store = ContentStore.getInstance();
+
+        List<Entry> entries = new ArrayList<>();
+        Map<Entry, ModInfo> toSize = new LinkedHashMap<>();
+        for (Map.Entry<SyncStage, List<ModInfo>> stageItems : selected.entrySet()) {
+            for (ModInfo mod : stageItems.getValue()) {
+                FileDownloader.FileStatus status = FileDownloader.inspectFileStatus(mod);
+                Path target = FileDownloader.getTargetFile(mod);
+                Action action = toAction(status.type);
+                String source = action == Action.RENAME ? relativize(baseDir, status.existingFile) : null;
+                Entry entry = new Entry(action, stageItems.getKey().getCliName(), mod.getFriendlyName(),
+                    relativize(baseDir, target), source, mod.getRes());
+                if ((action == Action.UPDATE || action == Action.DOWNLOAD) && store != null && store.contains(mod.getHash())) {
+                    entry.fromSharedCache = true;
+                } else if (action == Action.UPDATE || action == Action.DOWNLOAD) {
+                    entry.resumableBytes = new PartialDownload(target).resumableBytes(mod.getRes(), mod.getHash());
+                    toSize.put(entry, mod);
+                }
+                entries.add(entry);
+            }
+        }
+
+        sizeTransfers(toSize);
+        entries.addAll(findOrphans(baseDir, allEntries));
+        return new Plan(apiEndpoint, entries);
+    }
+
+    private static Action toAction(FileDownloader.FileStatusType type) {
+        switch (type) {
+            case FILE_UP_TO_DATE:
+                return Action.UP_TO_DATE;
+            case FILE_NEEDS_RENAME:
+                return Action.RENAME;
+            case FILE_NEEDS_UPDATE:
+                return Action.UPDATE;
+            case FILE_NOT_FOUND:
+            default:
+                return Action.DOWNLOAD;
+        }
+    }
+
+    /**
+     * Fill in sizes with concurrent HEAD requests over the shared transport
+     */
+    private static void sizeTransfers(Map<Entry, ModInfo> toSize) {
+        if (toSize.isEmpty()) {
+            return;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(HEAD_CONCURRENCY, toSize.size()), r -> {
+            Thread t = new Thread(r, "plan-head");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Map.Entry<Entry, ModInfo> item : toSize.entrySet()) {
+                futures.add(pool.submit(() -> {
+                    item.getKey().bytes = headContentLength(item.getValue().getRes());
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (Exception e) {
+                    // Size stays unknown
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static long headContentLength(String url) {
+        if (url == null || url.trim().isEmpty()) {
+            return -1;
+        }
+        try (HttpTransport.Response response = HttpTransport.getInstance().head(url, null)) {
+            return response.getStatusCode() == 200 ? response.getContentLength() : -1;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Files in the manifest's catalog directories that no entry targets or could be renamed from
+     */
+    private static List<Entry> findOrphans(Path baseDir, List<ModInfo> allEntries) {
+        Set<Path> claimed = new HashSet<>();
+        Set<String> catalogs = new LinkedHashSet<>();
+        for (ModInfo mod : allEntries) {
+            if (mod.getCatelog() == null) {
+                continue;
+            }
+            catalogs.add(mod.getCatelog());
+            claimed.add(FileDownloader.getTargetFile(mod).toAbsolutePath().normalize());
+            FileDownloader.FileStatus status = FileDownloader.inspectFileStatus(mod);
+            if (status.existingFile != null) {
+                claimed.add(status.existingFile.toAbsolutePath().normalize());
+            }
+        }
+
+        List<Entry> orphans = new ArrayList<>();
+        for (String catalog : catalogs) {
+            Path dir = FileDownloader.resolveCatalogDirectory(catalog);
+            if (!Files.isDirectory(dir)) {
+                continue;
+            }
+            List<Path> files;
+            try (Stream<Path> stream = Files.list(dir)) {
+                files = stream.filter(Files::isRegularFile)
+                    .filter(file -> !PartialDownload.isSidecarFile(file))
+                    .map(file -> file.toAbsolutePath().normalize())
+                    .filter(file -> !claimed.contains(file))
+                    .sorted()
+                    .collect(Collectors.toList());
+            } catch (Exception e) {
+                SyncLog.error("Error scanning directory " + dir + ": " + e.getMessage());
+                continue;
+            }
+            for (Path file : files) {
+                orphans.add(new Entry(Action.ORPHAN, catalog, file.getFileName().toString(),
+                    relativize(baseDir, file), null, null));
+            }
+        }
+        return orphans;
+    }
+
+    private static String relativize(Path baseDir, Path file) {
+        if (file == null) {
+            return null;
+        }
+        Path normalized = file.toAbsolutePath().normalize();
+        return normalized.startsWith(baseDir) ? baseDir.relativize(normalized).toString() : normalized.toString();
+    }
+
+    /**
+     * Print the plan as a human-readable table
+     */
+    public static void printText(Plan plan, double bytesPerSecond) {
+        System.out.println("\n=== Sync plan ===");
+        for (Entry entry : plan.getActions()) {
+            if (entry.getAction() == Action.UP_TO_DATE) {
+                continue;
+            }
+            String detail;
+            switch (entry.getAction()) {
+                case RENAME:
+                    detail = entry.getSource() + " -> " + entry.getTarget();
+                    break;
+                case UPDATE:
+                case DOWNLOAD:
+                    detail = entry.getTarget() + " (" + describeTransfer(entry) + ")";
+                    break;
+                default:
+                    detail = entry.getTarget();
+                    break;
+            }
+            System.out.printf("%-10s %-14s %s%n", entry.getAction(), entry.getStage(), detail);
+        }
+
+        System.out.println();
+        for (Action action : Action.values()) {
+            System.out.printf("%-10s %d%n", action, plan.getCount(action));
+        }
+        System.out.printf("To transfer: %s", FileDownloader.formatBytes(plan.getBytesToTransfer()));
+        if (plan.getUnknownSizes() > 0) {
+            System.out.printf(" + %d file(s) of unknown size", plan.getUnknownSizes());
+        }
+        System.out.println();
+        System.out.printf("Estimated time at %s/s: %s%n", FileDownloader.formatBytes((long) bytesPerSecond),
+            formatDuration(plan.estimateSeconds(bytesPerSecond)));
+    }
+
+    /**
+     * Serialize the plan, its totals and the time estimate as JSON
+     */
+    public static String toJson(Plan plan, double bytesPerSecond) {
+        Map<String, Object> totals = new LinkedHashMap<>();
+        for (Action action : Action.values()) {
+            totals.put(action.name(), plan.getCount(action));
+        }
+        totals.put("bytesToTransfer", plan.getBytesToTransfer());
+        totals.put("unknownSizes", plan.getUnknownSizes());
+        totals.put("assumedBytesPerSecond", (long) bytesPerSecond);
+        totals.put("estimatedSeconds", Math.round(plan.estimateSeconds(bytesPerSecond)));
+
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("apiEndpoint", plan.getApiEndpoint());
+        root.put("generatedAt", plan.generatedAt);
+        root.put("totals", totals);
+        root.put("actions", plan.getActions());
+        return gson.toJson(root);
+    }
+
+    private static String describeTransfer(Entry entry) {
+        if (entry.isFromSharedCache()) {
+            return "from shared cache";
+        }
+        long transfer = entry.getTransferBytes();
+        if (transfer < 0) {
+            return "size unknown";
+        }
+        if (entry.getResumableBytes() > 0) {
+            return FileDownloader.formatBytes(transfer) + ", resumes after " + FileDownloader.formatBytes(entry.getResumableBytes());
+        }
+        return FileDownloader.formatBytes(transfer);
+    }
+
+    private static String formatDuration(double seconds) {
+        long total = Math.round(seconds);
+        if (total < 60) {
+            return total + "s";
+        }
+        if (total < 3600) {
+            return String.format("%dm %02ds", total / 60, total % 60);
+        }
+        return String.format("%dh %02dm", total / 3600, (total % 3600) / 60);
+    }
+}
@@ -0,0 +1,62 @@
+package com.minecraft.sync;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Download stages of a sync run, in workflow order.
+ * Shared by the GUI workflow and the headless CLI so both select the same items per stage.
+ * Stages only wait for the stages they depend on; StageExecutor runs the rest side by side.
+ */
+public enum SyncStage {
+    PREREQUISITE_MODS("必备前置mod", "libs",
+        mod -> "mods".equals(mod.getCatelog()) && mod.isRequired() && "libs".equals(mod.getSubject())),
+    CONFIGS("配置文件", "configs",
+        mod -> "config".equals(mod.getCatelog())),
+    REQUIRED_MODS("必备mod", "mods",
+        mod -> "mods".equals(mod.getCatelog()) && mod.isRequired() && !"libs".equals(mod.getSubject())),
+    OPTIONAL_MODS("可选mod", "optional",
+        mod -> "mods".equals(mod.getCatelog()) && !mod.isRequired()),
+    RESOURCE_PACKS("资源包", "resourcepacks",
+        mod -> "resourcepacks".equals(mod.getCatelog()) && mod.isRequired()),
+    SHADERS("光影包", "shaders",
+        mod -> "shaderpacks".equals(mod.getCatelog()));
+
+    private final String displayName;
+    private final String cliName;
+    private final Predicate<ModInfo> filter;
+
+    SyncStage(String displayName, String cliName, Predicate<ModInfo> filter) {
+        this.displayName = displayName;
+        this.cliName = cliName;
+        this.filter = filter;
+    }
+
+    public String getDisplayName() { return displayName; }
+    public String getCliName() { return cliName; }
+
+    /**
+     * Stages that must finish before this one starts
+     */
+    public Set<SyncStage> getDependencies() {
+        // Required mods never land without their libraries; nothing else depends on anything
+        return this == REQUIRED_MODS ? EnumSet.of(PREREQUISITE_MODS) : EnumSet.noneOf(SyncStage.class);
+    }
+
+    /**
+     * Check whether a manifest entry belongs to this stage
+     */
+    public boolean matches(ModInfo mod) {
+        return filter.test(mod);
+    }
+
+    /**
+     * Select the entries of a manifest that belong to this stage, in manifest order
+     */
+    public List<ModInfo> select(List<ModInfo> mods) {
+        return mods.stream().filter(filter).collect(Collectors.toList());
+    }
+}
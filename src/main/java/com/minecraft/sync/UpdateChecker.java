@@ -4,90 +4,158 @@ import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 
-import javax.swing.*;
-import java.awt.GraphicsEnvironment;
-import java.io.*;
-import java.net.URL;
-import java.nio.channels.Channels;
-import java.nio.channels.ReadableByteChannel;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Checks the update API for a newer launcher jar.
+ * The check runs on a background thread so startup never waits for the update server;
+ * callers receive the result through a future and decide how to present it.
+ */
 public class UpdateChecker {
     private static final String UPDATE_API_URL = "https://api.galentwww.cn/items/mod_essential?filter[friendly_name][_eq]=MinecraftResSync";
     private static final String CURRENT_JAR_NAME = "minecraftResSync.jar";
+    private static final String STAGED_SUFFIX = ".new";
+    private static final String BACKUP_SUFFIX = ".backup";
+    // The launcher jar is a few megabytes; anything far larger is not a legitimate update
+    private static final long MAX_UPDATE_BYTES = Long.getLong("mcsync.update.maxBytes", 64L * 1024 * 1024);
     
-    public static void checkAndUpdate() {
-        try {
-            System.out.println("检查更新中...");
-            
-            String currentJarPath = getCurrentJarPath();
-            if (currentJarPath == null) {
-                System.out.println("无法确定当前JAR文件路径，跳过更新检查");
-                return;
-            }
-            
-            String currentHash = calculateFileHash(currentJarPath);
-            if (currentHash == null) {
-                System.out.println("无法计算当前文件哈希，跳过更新检查");
-                return;
-            }
-            
-            System.out.println("当前文件哈希: " + currentHash);
-            
-            String apiResponse = HttpClient.get(UPDATE_API_URL);
-            if (apiResponse == null) {
-                System.out.println("无法获取更新信息，跳过更新检查");
-                return;
-            }
-            
-            Gson gson = new Gson();
-            JsonObject response = gson.fromJson(apiResponse, JsonObject.class);
-            JsonArray data = response.getAsJsonArray("data");
-            
-            if (data == null || data.size() == 0) {
-                System.out.println("未找到更新信息");
-                return;
-            }
-            
-            JsonObject updateInfo = data.get(0).getAsJsonObject();
-            String latestHash = updateInfo.get("hash").getAsString();
-            String downloadUrl = updateInfo.get("res").getAsString();
-            
-            System.out.println("最新文件哈希: " + latestHash);
-            
-            if (!currentHash.equals(latestHash)) {
-                System.out.println("发现新版本！");
-                
-                if (isGUIMode()) {
-                    int result = JOptionPane.showConfirmDialog(
-                        null,
-                        "发现新版本，是否立即更新？\n\n当前版本: " + currentHash.substring(0, 8) + 
-                        "\n最新版本: " + latestHash.substring(0, 8),
-                        "更新提醒",
-                        JOptionPane.YES_NO_OPTION,
-                        JOptionPane.QUESTION_MESSAGE
-                    );
-                    
-                    if (result == JOptionPane.YES_OPTION) {
-                        downloadUpdate(downloadUrl, currentJarPath);
-                    }
-                } else {
-                    System.out.println("命令行模式下自动更新");
-                    downloadUpdate(downloadUrl, currentJarPath);
-                }
-            } else {
-                System.out.println("当前已是最新版本");
+    /**
+     * Outcome of a completed update check
+     */
+    public static class UpdateInfo {
+        private final String jarPath;
+        private final String currentHash;
+        private final String latestHash;
+        private final String downloadUrl;
+        private final DigestAlgorithm algorithm;
+        
+        UpdateInfo(String jarPath, String currentHash, String latestHash, String downloadUrl, DigestAlgorithm algorithm) {
+            this.jarPath = jarPath;
+            this.currentHash = currentHash;
+            this.latestHash = latestHash;
+            this.downloadUrl = downloadUrl;
+            this.algorithm = algorithm;
+        }
+        
+        public String getCurrentHash() { return currentHash; }
+        public String getLatestHash() { return latestHash; }
+        public String getDownloadUrl() { return downloadUrl; }
+        
+        public boolean isUpdateAvailable() {
+            return !currentHash.equalsIgnoreCase(latestHash);
+        }
+        
+        /**
+         * Short form of a hash for display
+         */
+        public static String shortHash(String hash) {
+            return hash != null && hash.length() > 8 ? hash.substring(0, 8) : String.valueOf(hash);
+        }
+    }
+    
+    /**
+     * Start the update check on a daemon thread
+     * @return a future completed with the result, or with null if the check could not be made
+     */
+    public static CompletableFuture<UpdateInfo> checkAsync() {
+        CompletableFuture<UpdateInfo> future = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                future.complete(check());
+            } catch (Throwable t) {
+                System.err.println("更新检查失败: " + t.getMessage());
+                future.complete(null);
             }
-            
+        }, "update-check");
+        thread.setDaemon(true);
+        thread.start();
+        return future;
+    }
+    
+    /**
+     * Wait briefly for a running check and install an available update (used by the CLI once its work is done)
+     * @param waitMillis how long to wait for a check that has not finished yet
+     */
+    public static void applyWhenReady(CompletableFuture<UpdateInfo> check, long waitMillis) {
+        UpdateInfo info;
+        try {
+            info = check.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            System.out.println("更新检查未在时限内完成，跳过");
+            return;
         } catch (Exception e) {
-            System.err.println("更新检查失败: " + e.getMessage());
+            return;
+        }
+        if (info != null && info.isUpdateAvailable()) {
+            System.out.println("命令行模式下自动更新");
+            if (downloadUpdate(info)) {
+                System.out.println("更新完成！下次启动时生效。");
+            }
         }
     }
     
+    /**
+     * Query the update API and compare the advertised hash with the running jar
+     * @return the result, or null if the check could not be made
+     */
+    private static UpdateInfo check() throws IOException {
+        System.out.println("检查更新中...");
+        
+        String currentJarPath = getCurrentJarPath();
+        if (currentJarPath == null) {
+            System.out.println("无法确定当前JAR文件路径，跳过更新检查");
+            return null;
+        }
+        
+        String apiResponse = HttpClient.get(UPDATE_API_URL);
+        if (apiResponse == null) {
+            System.out.println("无法获取更新信息，跳过更新检查");
+            return null;
+        }
+        
+        Gson gson = new Gson();
+        JsonObject response = gson.fromJson(apiResponse, JsonObject.class);
+        JsonArray data = response.getAsJsonArray("data");
+        
+        if (data == null || data.size() == 0) {
+            System.out.println("未找到更新信息");
+            return null;
+        }
+        
+        JsonObject updateInfo = data.get(0).getAsJsonObject();
+        String latestHash = updateInfo.get("hash").getAsString();
+        String downloadUrl = updateInfo.get("res").getAsString();
+        String hashAlgo = updateInfo.has("hash_algo") && !updateInfo.get("hash_algo").isJsonNull()
+            ? updateInfo.get("hash_algo").getAsString() : null;
+        DigestAlgorithm algorithm = DigestAlgorithm.forManifest(hashAlgo, latestHash);
+        if (algorithm == null) {
+            System.out.println("不支持的哈希算法: " + hashAlgo + "，跳过更新检查");
+            return null;
+        }
+        
+        // The hash index keys on the jar's size and mtime, so the jar is only re-hashed after it changes
+        String currentHash = HashIndex.getInstance().getDigest(Paths.get(currentJarPath), algorithm);
+        HashIndex.getInstance().save();
+        if (currentHash == null) {
+            System.out.println("无法计算当前文件哈希，跳过更新检查");
+            return null;
+        }
+        
+        System.out.println("当前文件哈希: " + currentHash);
+        System.out.println("最新文件哈希: " + latestHash);
+        
+        UpdateInfo info = new UpdateInfo(currentJarPath, currentHash, latestHash, downloadUrl, algorithm);
+        System.out.println(info.isUpdateAvailable() ? "发现新版本！" : "当前已是最新版本");
+        return info;
+    }
+    
     private static String getCurrentJarPath() {
         try {
             String jarPath = UpdateChecker.class.getProtectionDomain()
@@ -111,78 +179,90 @@ public class UpdateChecker {
         }
     }
     
-    private static String calculateFileHash(String filePath) {
+    /**
+     * Download and install the update described by a completed check.
+     * The new jar is streamed into a staging file next to the running one and digested on the
+     * way in; only a verified file replaces the jar, by rename, after the current jar has been
+     * kept as the backup. An interrupted download stays resumable and a verified staging file
+     * is reused, so a failed attempt never costs a full download again.
+     * @return true if the new jar is in place
+     */
+    public static boolean downloadUpdate(UpdateInfo info) {
+        Path jarFile = Paths.get(info.jarPath).toAbsolutePath();
+        Path stagedFile = jarFile.resolveSibling(jarFile.getFileName() + STAGED_SUFFIX);
         try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            FileInputStream fis = new FileInputStream(filePath);
-            byte[] buffer = new byte[8192];
-            int bytesRead;
+            if (isStaged(stagedFile, info)) {
+                System.out.println("使用已下载并校验的更新: " + stagedFile);
+            } else if (!downloadStaged(info, stagedFile)) {
+                return false;
+            }
             
-            while ((bytesRead = fis.read(buffer)) != -1) {
-                md.update(buffer, 0, bytesRead);
+            // Keep the running jar as the backup before anything replaces it
+            Path backupFile = jarFile.resolveSibling(jarFile.getFileName() + BACKUP_SUFFIX);
+            Path backupTemp = jarFile.resolveSibling(jarFile.getFileName() + BACKUP_SUFFIX + ".tmp");
+            Files.deleteIfExists(backupTemp);
+            try {
+                Files.createLink(backupTemp, jarFile);
+            } catch (IOException | UnsupportedOperationException e) {
+                Files.copy(jarFile, backupTemp);
             }
-            fis.close();
+            FileDownloader.atomicReplace(backupTemp, backupFile);
+            System.out.println("已创建备份文件: " + backupFile);
             
-            byte[] digest = md.digest();
-            StringBuilder sb = new StringBuilder();
-            for (byte b : digest) {
-                sb.append(String.format("%02x", b));
+            try {
+                // A rename leaves the running JVM's open jar untouched, unlike writing over it
+                FileDownloader.atomicReplace(stagedFile, jarFile);
+            } catch (IOException e) {
+                System.err.println("无法替换当前程序文件: " + e.getMessage());
+                System.err.println("新版本已保存为 " + stagedFile + "，请退出程序后用它替换 " + jarFile);
+                return false;
             }
             
-            return sb.toString();
-        } catch (NoSuchAlgorithmException | IOException e) {
-            return null;
+            HashIndex index = HashIndex.getInstance();
+            index.remove(stagedFile);
+            index.record(jarFile, info.algorithm, info.latestHash);
+            index.save();
+            System.out.println("更新完成！新文件哈希: " + info.latestHash);
+            return true;
+            
+        } catch (Exception e) {
+            System.err.println("更新安装失败: " + e.getMessage());
+            return false;
         }
     }
     
-    private static void downloadUpdate(String downloadUrl, String currentJarPath) {
-        try {
-            System.out.println("开始下载更新: " + downloadUrl);
-            
-            String backupPath = currentJarPath + ".backup";
-            Files.copy(Paths.get(currentJarPath), Paths.get(backupPath));
-            System.out.println("已创建备份文件: " + backupPath);
-            
-            URL url = new URL(downloadUrl);
-            ReadableByteChannel rbc = Channels.newChannel(url.openStream());
-            FileOutputStream fos = new FileOutputStream(currentJarPath);
-            fos.getChannel().transferFrom(rbc, 0, Long.MAX_VALUE);
-            fos.close();
-            rbc.close();
-            
-            String newHash = calculateFileHash(currentJarPath);
-            System.out.println("更新完成！新文件哈希: " + newHash);
-            
-            if (isGUIMode()) {
-                JOptionPane.showMessageDialog(
-                    null,
-                    "更新完成！请重新启动应用程序。\n\n新版本哈希: " + 
-                    (newHash != null ? newHash.substring(0, 8) : "未知"),
-                    "更新完成",
-                    JOptionPane.INFORMATION_MESSAGE
-                );
-                System.exit(0);
-            } else {
-                System.out.println("更新完成！请重新启动应用程序。");
-                System.exit(0);
-            }
-            
-        } catch (Exception e) {
-            System.err.println("更新下载失败: " + e.getMessage());
-            
-            if (isGUIMode()) {
-                JOptionPane.showMessageDialog(
-                    null,
-                    "更新失败: " + e.getMessage(),
-                    "更新错误",
-                    JOptionPane.ERROR_MESSAGE
-                );
-            }
+    /**
+     * Whether an earlier attempt already left the advertised jar in the staging file
+     */
+    private static boolean isStaged(Path stagedFile, UpdateInfo info) {
+        if (!Files.isRegularFile(stagedFile)) {
+            return false;
         }
+        String stagedHash = HashIndex.getInstance().getDigest(stagedFile, info.algorithm);
+        return info.latestHash.equalsIgnoreCase(stagedHash);
     }
     
-    private static boolean isGUIMode() {
-        return !GraphicsEnvironment.isHeadless() && 
-               System.getProperty("java.awt.headless") == null;
+    /**
+     * Download the new jar into the staging file, verified against the advertised hash
+     */
+    private static boolean downloadStaged(UpdateInfo info, Path stagedFile) {
+        System.out.println("开始下载更新: " + info.downloadUrl);
+        AtomicBoolean oversized = new AtomicBoolean();
+        boolean downloaded = FileDownloader.downloadFileFromUrl(info.downloadUrl, stagedFile, (bytesRead, totalBytes) -> {
+            if (bytesRead > MAX_UPDATE_BYTES || totalBytes > MAX_UPDATE_BYTES) {
+                oversized.set(true);
+                throw new IllegalStateException("更新文件超过大小上限 " + FileDownloader.formatBytes(MAX_UPDATE_BYTES));
+            }
+        }, info.latestHash, info.algorithm);
+        SyncLog.flush();
+        
+        if (oversized.get()) {
+            // Resuming would only run into the limit again
+            new PartialDownload(stagedFile).discard();
+        }
+        if (!downloaded) {
+            System.err.println("更新下载失败，当前程序未改动");
+        }
+        return downloaded;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,153 @@
+package com.minecraft.sync;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+
+/**
+ * Streaming XXH64 (seed 0) exposed as a MessageDigest so it can be used wherever a
+ * cryptographic digest is. Not collision resistant: only used to tell whether a local
+ * file changed, never to verify downloaded content.
+ * The digest bytes are big-endian, so the hex form matches the xxhsum tool.
+ */
+class XxHash64 extends MessageDigest {
+
+    private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME64_3 = 0x165667B19E3779F9L;
+    private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+    private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final int STRIPE = 32;
+
+    private long v1;
+    private long v2;
+    private long v3;
+    private long v4;
+    private long totalLength;
+
+    // Input that did not fill a whole stripe yet
+    private final byte[] pending = new byte[STRIPE];
+    private int pendingLength;
+
+    XxHash64() {
+        super("XXH64");
+        engineReset();
+    }
+
+    @Override
+    protected int engineGetDigestLength() {
+        return 8;
+    }
+
+    @Override
+    protected void engineReset() {
+        v1 = PRIME64_1 + PRIME64_2;
+        v2 = PRIME64_2;
+        v3 = 0;
+        v4 = -PRIME64_1;
+        totalLength = 0;
+        pendingLength = 0;
+    }
+
+    @Override
+    protected void engineUpdate(byte input) {
+        engineUpdate(new byte[] {input}, 0, 1);
+    }
+
+    @Override
+    protected void engineUpdate(byte[] input, int offset, int length) {
+        totalLength += length;
+        int end = offset + length;
+
+        if (pendingLength > 0) {
+            int fill = Math.min(STRIPE - pendingLength, length);
+            System.arraycopy(input, offset, pending, pendingLength, fill);
+            pendingLength += fill;
+            offset += fill;
+            if (pendingLength < STRIPE) {
+                return;
+            }
+            consumeStripe(pending, 0);
+            pendingLength = 0;
+        }
+
+        while (end - offset >= STRIPE) {
+            consumeStripe(input, offset);
+            offset += STRIPE;
+        }
+
+        if (offset < end) {
+            System.arraycopy(input, offset, pending, 0, end - offset);
+            pendingLength = end - offset;
+        }
+    }
+
+    @Override
+    protected byte[] engineDigest() {
+        long hash;
+        if (totalLength >= STRIPE) {
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        } else {
+            hash = PRIME64_5;
+        }
+        hash += totalLength;
+
+        int position = 0;
+        while (position + 8 <= pendingLength) {
+            hash ^= round(0, (long) LONG_LE.get(pending, position));
+            hash = Long.rotateLeft(hash, 27) * PRIME64_1 + PRIME64_4;
+            position += 8;
+        }
+        if (position + 4 <= pendingLength) {
+            hash ^= ((int) INT_LE.get(pending, position) & 0xFFFFFFFFL) * PRIME64_1;
+            hash = Long.rotateLeft(hash, 23) * PRIME64_2 + PRIME64_3;
+            position += 4;
+        }
+        while (position < pendingLength) {
+            hash ^= (pending[position] & 0xFF) * PRIME64_5;
+            hash = Long.rotateLeft(hash, 11) * PRIME64_1;
+            position++;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME64_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME64_3;
+        hash ^= hash >>> 32;
+
+        byte[] result = new byte[8];
+        for (int i = 7; i >= 0; i--) {
+            result[i] = (byte) hash;
+            hash >>>= 8;
+        }
+        engineReset();
+        return result;
+    }
+
+    private void consumeStripe(byte[] data, int offset) {
+        v1 = round(v1, (long) LONG_LE.get(data, offset));
+        v2 = round(v2, (long) LONG_LE.get(data, offset + 8));
+        v3 = round(v3, (long) LONG_LE.get(data, offset + 16));
+        v4 = round(v4, (long) LONG_LE.get(data, offset + 24));
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * PRIME64_2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * PRIME64_1;
+    }
+
+    private static long mergeRound(long acc, long value) {
+        acc ^= round(0, value);
+        return acc * PRIME64_1 + PRIME64_4;
+    }
+}
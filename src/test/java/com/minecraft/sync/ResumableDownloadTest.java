@@ -0,0 +1,198 @@
+package com.minecraft.sync;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Resume of interrupted downloads against a local HTTP server that drops the first
+ * response partway through the body
+ */
+class ResumableDownloadTest {
+
+    private static final int SIZE = 256 * 1024;
+    private static final int CUT = 100 * 1024;
+    private static final String ETAG = "\"v1\"";
+
+    /**
+     * How the server answers the n-th request, counting from 1
+     */
+    private interface Reply {
+        void send(HttpExchange exchange, int requestNumber) throws IOException;
+    }
+
+    @TempDir
+    Path dir;
+
+    private final byte[] content = new byte[SIZE];
+    private final List<Headers> requests = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+    private Path target;
+    private Path partFile;
+    private Path metaFile;
+
+    // Sidecar state on disk when the second request arrived
+    private volatile boolean partPresentOnRetry;
+    private volatile boolean metaPresentOnRetry;
+    private volatile long partSizeOnRetry = -1;
+
+    @BeforeEach
+    void setUp() {
+        new Random(42).nextBytes(content);
+        target = dir.resolve("pack.zip");
+        partFile = dir.resolve("pack.zip" + PartialDownload.PART_SUFFIX);
+        metaFile = dir.resolve("pack.zip" + PartialDownload.META_SUFFIX);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void interruptedDownloadResumesWithRange() throws Exception {
+        String url = serve((exchange, n) -> {
+            if (n == 1) {
+                sendCut(exchange);
+            } else {
+                sendRange(exchange);
+            }
+        });
+
+        assertTrue(download(url));
+
+        assertEquals(2, requests.size());
+        assertNull(requests.get(0).getFirst("Range"));
+        assertTrue(partPresentOnRetry, ".part must survive the dropped connection");
+        assertTrue(metaPresentOnRetry, ".part.meta must survive the dropped connection");
+        assertTrue(partSizeOnRetry > 0 && partSizeOnRetry <= CUT, "kept " + partSizeOnRetry + " bytes");
+        assertEquals("bytes=" + partSizeOnRetry + "-", requests.get(1).getFirst("Range"));
+        assertEquals(ETAG, requests.get(1).getFirst("If-Range"));
+        assertCompleted();
+    }
+
+    @Test
+    void fullResponseToRangeRequestRestartsCleanly() throws Exception {
+        String url = serve((exchange, n) -> {
+            if (n == 1) {
+                sendCut(exchange);
+            } else {
+                sendFull(exchange);
+            }
+        });
+
+        assertTrue(download(url));
+
+        assertEquals(2, requests.size());
+        assertEquals("bytes=" + partSizeOnRetry + "-", requests.get(1).getFirst("Range"));
+        // The 200 body replaces the kept prefix instead of being appended to it
+        assertCompleted();
+    }
+
+    @Test
+    void rangeNotSatisfiableRestartsWithoutRange() throws Exception {
+        String url = serve((exchange, n) -> {
+            if (n == 1) {
+                sendCut(exchange);
+            } else if (n == 2) {
+                exchange.sendResponseHeaders(416, -1);
+            } else {
+                sendFull(exchange);
+            }
+        });
+
+        assertTrue(download(url));
+
+        assertEquals(3, requests.size());
+        assertEquals("bytes=" + partSizeOnRetry + "-", requests.get(1).getFirst("Range"));
+        assertNull(requests.get(2).getFirst("Range"));
+        assertNull(requests.get(2).getFirst("If-Range"));
+        assertCompleted();
+    }
+
+    private boolean download(String url) throws Exception {
+        String expectedHash = FileDownloader.toHex(MessageDigest.getInstance("MD5").digest(content));
+        return FileDownloader.downloadFileFromUrl(url, target, null, expectedHash, DigestAlgorithm.MD5);
+    }
+
+    private void assertCompleted() throws IOException {
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertFalse(Files.exists(partFile));
+        assertFalse(Files.exists(metaFile));
+    }
+
+    /**
+     * Start a server on a free port; each test gets its own port, so circuit breakers
+     * from other tests do not apply
+     */
+    private String serve(Reply reply) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/pack.zip", exchange -> {
+            requests.add(exchange.getRequestHeaders());
+            int n = requests.size();
+            if (n == 2) {
+                partPresentOnRetry = Files.exists(partFile);
+                metaPresentOnRetry = Files.exists(metaFile);
+                partSizeOnRetry = partPresentOnRetry ? Files.size(partFile) : -1;
+            }
+            try {
+                reply.send(exchange, n);
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/pack.zip";
+    }
+
+    /**
+     * Announce the full body but send only the first CUT bytes; closing the exchange with
+     * bytes missing drops the connection, which may also discard the last bytes in flight
+     */
+    private void sendCut(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().add("ETag", ETAG);
+        exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+        exchange.sendResponseHeaders(200, SIZE);
+        OutputStream body = exchange.getResponseBody();
+        body.write(content, 0, CUT);
+        body.flush();
+    }
+
+    private void sendFull(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().add("ETag", ETAG);
+        exchange.sendResponseHeaders(200, SIZE);
+        exchange.getResponseBody().write(content);
+    }
+
+    private void sendRange(HttpExchange exchange) throws IOException {
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        int start = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+        exchange.getResponseHeaders().add("ETag", ETAG);
+        exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + (SIZE - 1) + "/" + SIZE);
+        exchange.sendResponseHeaders(206, SIZE - start);
+        exchange.getResponseBody().write(content, start, SIZE - start);
+    }
+}
@@ -0,0 +1,143 @@
+package com.minecraft.sync;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Retries and circuit breaking when a host has a short outage: a few transient errors may
+ * pause requests to the host, but must not fail the items that have nowhere else to go
+ */
+class TransientOutageTest {
+
+    private static final int ITEMS = 30;
+    private static final int THREADS = 8;
+    private static final int SIZE = 32 * 1024;
+
+    @TempDir
+    Path dir;
+
+    private HttpServer server;
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void oneServerErrorPerFileDoesNotFailTheBatch() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        Set<String> failedOnce = ConcurrentHashMap.newKeySet();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            String path = exchange.getRequestURI().getPath();
+            try {
+                if (failedOnce.add(path)) {
+                    exchange.sendResponseHeaders(503, -1);
+                } else {
+                    byte[] body = content(path);
+                    exchange.sendResponseHeaders(200, body.length);
+                    exchange.getResponseBody().write(body);
+                }
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+        String base = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+
+        ExecutorService workers = Executors.newFixedThreadPool(THREADS);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < ITEMS; i++) {
+                String path = "/mod" + i + ".jar";
+                String expectedHash = FileDownloader.toHex(MessageDigest.getInstance("MD5").digest(content(path)));
+                Path target = dir.resolve("mod" + i + ".jar");
+                results.add(workers.submit(() ->
+                    FileDownloader.downloadFileFromUrl(base + path, target, null, expectedHash, DigestAlgorithm.MD5)));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+
+        // One error and one good response per file; a paused host is waited for, not skipped
+        assertEquals(2 * ITEMS, requests.get());
+        for (int i = 0; i < ITEMS; i++) {
+            assertArrayEquals(content("/mod" + i + ".jar"), Files.readAllBytes(dir.resolve("mod" + i + ".jar")));
+        }
+        CircuitBreaker breaker = RetryPolicy.getInstance().getBreakers().get(RetryPolicy.hostKey(base));
+        assertTrue(breaker.getTrips() > 0, "the burst of errors should have paused the host");
+    }
+
+    @Test
+    void onlyCallersWithAnotherSourceSkipAPausedHost() throws Exception {
+        String url = "http://127.0.0.1:" + unusedPort() + "/mod.jar";
+        RetryPolicy policy = RetryPolicy.getInstance();
+        for (int i = 0; i < 5; i++) {
+            assertThrows(IOException.class, () -> policy.execute(url, "mod.jar", 1, false, () -> {
+                throw new IOException("connection reset");
+            }));
+        }
+        assertFalse(policy.isAvailable(RetryPolicy.hostKey(url)));
+
+        AtomicInteger attempts = new AtomicInteger();
+        assertThrows(RetryPolicy.CircuitOpenException.class, () -> policy.execute(url, "mod.jar", 1, true, () -> {
+            attempts.incrementAndGet();
+            return "skipped";
+        }));
+        assertEquals(0, attempts.get());
+
+        String result = policy.execute(url, "mod.jar", 1, false, () -> {
+            attempts.incrementAndGet();
+            return "waited";
+        });
+        assertEquals("waited", result);
+        assertEquals(1, attempts.get());
+        assertTrue(policy.isAvailable(RetryPolicy.hostKey(url)));
+    }
+
+    private static byte[] content(String path) {
+        byte[] data = new byte[SIZE];
+        new Random(path.hashCode()).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * A port nothing listens on, so the host key is not shared with another test
+     */
+    private static int unusedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        }
+    }
+}